@@ -2,24 +2,61 @@ package be.ac.optimization.heuristic;
 
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 
 public class ACOHelper {
 	private final static Logger LOGGER = Logger.getLogger(ACOHelper.class);
 	private static final Double HUGE_VALUE = 100000.0;
-	private HashMap<Integer, Double> pheromone;
+	private PheromoneTrail pheromone;
 	private ArrayList<Ant> ants;
 	private SetCoveringProblem problem;
-	private Double minPheromone;
-	private Double maxPheromone;
 	private Double rho;
 	private Double epsilon;
-	private Ant bestAnt;
+	private SolutionSnapshot bestAnt;
 	private Integer numberOfAnts;
 	private Long maxTime;
 	private Integer maxLoops;
+	/**
+	 * Number of threads building the solutions of the ants. With more than
+	 * one thread the ants of an iteration are run concurrently, they only
+	 * read the pheromone, which is updated once all of them are done
+	 */
+	private Integer threads;
+	/**
+	 * Asynchronous colony: every thread keeps building ants without waiting
+	 * for the others, and the pheromone is updated each time the colony
+	 * completes as many solutions as ants it has
+	 */
+	private Boolean asynchronous;
+	/**
+	 * Results of the redundancy elimination of the solutions built by the
+	 * ants, null when they are not cached
+	 */
+	private SolutionCache solutionCache;
+	/**
+	 * Solution of each ant in the current iteration, after the redundancy
+	 * elimination
+	 */
+	private SolutionSnapshot[] solutions;
+	/**
+	 * Cost at which the colony stops, null to run until the time or loops
+	 * limits
+	 */
+	private Integer targetCost;
+	/**
+	 * Moment the target cost was first reached, zero while it is not
+	 */
+	private final AtomicLong targetTime = new AtomicLong();
 
 	/**
 	 * Initial set up for the ant colony algorithm execution
@@ -30,37 +67,53 @@ public class ACOHelper {
 	 * @param rho
 	 * @param epsilon
 	 * @param duration
+	 * @param threads
+	 * @param asynchronous
+	 * @param candidateListSize
+	 * @param cacheSize
+	 * @param targetCost
 	 */
 	private ACOHelper(Integer numberOfAnts, SetCoveringProblem scp, Double beta, Double rho,
-			Double epsilon, Long duration, Integer maxLoops) {
+			Double epsilon, Long duration, Integer maxLoops, Integer threads,
+			Boolean asynchronous, Integer candidateListSize, Integer cacheSize,
+			Integer targetCost) {
 		problem = scp;
 		problem.uncoverAllSets();
 		this.numberOfAnts = numberOfAnts;
-		HashMap<Integer, Double> heuristicInformation = initHeuristicInformation();
+		double[] heuristicInformation = initHeuristicInformation();
 		ants = new ArrayList<>();
 		initPheromone();
+		// Every ant works on its own solution, heuristic information and
+		// stream of random numbers, the instance is shared among all of them.
+		// The streams are split in the order of the ants, so the results do
+		// not depend on the number of threads
 		for (int i = 0; i < this.numberOfAnts; i++) {
-			ants.add(new Ant(scp, pheromone, heuristicInformation, beta));
+			ants.add(new Ant(new SetCoveringProblem(scp.getInstance(), scp.getRandom().split()),
+					pheromone, heuristicInformation, beta,
+					candidateListSize == null ? 0 : candidateListSize));
+		}
+		this.threads = threads == null ? 1 : threads;
+		this.asynchronous = asynchronous != null && asynchronous;
+		this.solutions = new SolutionSnapshot[this.numberOfAnts];
+		if (cacheSize != null && cacheSize > 0) {
+			this.solutionCache = new SolutionCache(cacheSize);
 		}
 		this.rho = rho;
 		this.epsilon = epsilon;
 		this.maxTime = System.currentTimeMillis() + duration;
 		this.maxLoops = maxLoops;
+		this.targetCost = targetCost;
 		Calendar c = Calendar.getInstance();
 		c.setTimeInMillis(this.maxTime);
 		LOGGER.info("expected finish time: " + c.getTime());
 	}
 
 	/**
-	 * Method to initialize pheromone with an arbitrary big number. In this case
-	 * the maximum Double number is used as value.
+	 * Method to initialize pheromone with an arbitrary big number, which is
+	 * also its initial maximum value.
 	 */
 	private void initPheromone() {
-		pheromone = new HashMap<>();
-		for (Integer set : problem.getUncoveredSets()) {
-			pheromone.put(set, HUGE_VALUE);
-		}
-		this.maxPheromone = HUGE_VALUE;
+		pheromone = new PheromoneTrail(problem.getnSets(), HUGE_VALUE);
 	}
 
 	/**
@@ -68,12 +121,11 @@ public class ACOHelper {
 	 * 
 	 * @return
 	 */
-	private HashMap<Integer, Double> initHeuristicInformation() {
-		HashMap<Integer, Double> heuristicInformation = new HashMap<>();
-		for (Integer s : problem.getUncoveredSets()) {
-			heuristicInformation.put(s,
-					Double.valueOf(problem.getSetElementMap().get(s).getElems().size())
-							/ Double.valueOf(problem.getSetElementMap().get(s).getCost()));
+	private double[] initHeuristicInformation() {
+		double[] heuristicInformation = new double[problem.getnSets()];
+		for (int s = 0; s < heuristicInformation.length; s++) {
+			heuristicInformation[s] = Double.valueOf(problem.getSetSize(s))
+					/ Double.valueOf(problem.getSetCost(s));
 		}
 		return heuristicInformation;
 	}
@@ -84,25 +136,28 @@ public class ACOHelper {
 	 * @return
 	 */
 	public SetCoveringProblem execute() {
-		Ant currentBestAnt = null;
-		// Ant currentBestAnt = ants.get(0);
+		if (asynchronous) {
+			return executeAsynchronous();
+		}
+		SolutionSnapshot currentBestAnt = null;
 		Boolean firstLoop = true;
 		Integer loopCounter = 0;
 		Long startTime = System.currentTimeMillis();
 		StringBuilder qrtdBuffer = new StringBuilder();
 		String outputFileName = Utils.getQRTDOutputFileName(startTime, problem.getInstanceFile());
-		while (!terminate(loopCounter)) {
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		while (!terminate(loopCounter, bestAnt)) {
 			currentBestAnt = bestAnt;
-			for (Ant ant : ants) {
-				ant.solve();
-				ant.getProblem().redundancyElimination();
-				if (currentBestAnt == null) {
-					currentBestAnt = ant;
+			buildSolutions(executor);
+			for (SolutionSnapshot solution : solutions) {
+				if (bestAnt == null || bestAnt.getCost() > solution.getCost()) {
+					bestAnt = solution;
 				}
-				if (bestAnt == null || (bestAnt != null && bestAnt.getCost() > ant.getCost())) {
-					bestAnt = new Ant(ant);
+				if (currentBestAnt == null) {
+					currentBestAnt = bestAnt;
 				}
 			}
+			recordTarget(bestAnt);
 			updatePheromone(currentBestAnt, firstLoop);
 			firstLoop = false;
 			if (loopCounter % 20 == 0) {
@@ -113,11 +168,205 @@ public class ACOHelper {
 			qrtdBuffer.append(
 					Utils.runtimeDistributionTextValue(startTime, loopCounter, bestAnt.getCost()));
 		}
+		if (executor != null) {
+			executor.shutdown();
+		}
+		logCacheStatistics();
+		Utils.outputQRTD(qrtdBuffer, outputFileName);
+		bestAnt.restore(problem);
+		return problem;
+	}
+
+	/**
+	 * Builds the solution of every ant of the colony followed by its
+	 * redundancy elimination, leaving them in the solutions of the iteration.
+	 * When an executor is given the ants are run on it concurrently, and the
+	 * method waits until all of them are done
+	 * 
+	 * @param executor
+	 */
+	private void buildSolutions(ExecutorService executor) {
+		if (executor == null) {
+			for (int i = 0; i < ants.size(); i++) {
+				solutions[i] = buildSolution(ants.get(i));
+			}
+			return;
+		}
+		List<Callable<Void>> tasks = new ArrayList<>(ants.size());
+		for (int i = 0; i < ants.size(); i++) {
+			int a = i;
+			tasks.add(() -> {
+				solutions[a] = buildSolution(ants.get(a));
+				return null;
+			});
+		}
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Construction of the ants' solutions failed", e);
+		}
+	}
+
+	/**
+	 * Builds the solution of the given ant and applies the redundancy
+	 * elimination to it, unless its result is found in the cache. The state
+	 * of the problem of the ant is only valid when the cache is not used
+	 * 
+	 * @param ant
+	 * @return
+	 */
+	private SolutionSnapshot buildSolution(Ant ant) {
+		ant.solve();
+		if (solutionCache == null) {
+			ant.getProblem().redundancyElimination();
+			return SolutionSnapshot.of(ant.getProblem());
+		}
+		int[] sets = ant.getProblem().getCoveredSetsArray();
+		SolutionSnapshot solution = solutionCache.get(ant.getSolutionHash(), sets);
+		if (solution == null) {
+			ant.getProblem().redundancyElimination();
+			solution = SolutionSnapshot.of(ant.getProblem());
+			solutionCache.put(ant.getSolutionHash(), sets, solution);
+		}
+		return solution;
+	}
+
+	private void logCacheStatistics() {
+		if (solutionCache != null) {
+			LOGGER.info("Solution cache hits: " + solutionCache.getHits() + ", misses: "
+					+ solutionCache.getMisses());
+		}
+	}
+
+	/**
+	 * Asynchronous execution of the ACO algorithm. Each thread repeatedly
+	 * builds the solution of its ants and publishes it as the best one found
+	 * through a compare and set, so no lock is taken unless the solution
+	 * improves the best one. The thread completing the n-th solution of the
+	 * colony (n being the number of ants) updates the pheromone while the
+	 * others keep building solutions on the current trail. The result depends
+	 * on the scheduling of the threads, so it is not reproducible
+	 * 
+	 * @return
+	 */
+	private SetCoveringProblem executeAsynchronous() {
+		AtomicReference<SolutionSnapshot> best = new AtomicReference<>();
+		AtomicInteger solutions = new AtomicInteger();
+		AtomicInteger loopCounter = new AtomicInteger();
+		Long startTime = System.currentTimeMillis();
+		StringBuilder qrtdBuffer = new StringBuilder();
+		String outputFileName = Utils.getQRTDOutputFileName(startTime, problem.getInstanceFile());
+		int workers = Math.min(threads, ants.size());
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		List<Callable<Void>> tasks = new ArrayList<>(workers);
+		for (int w = 0; w < workers; w++) {
+			// Each worker takes the ants w, w + workers, w + 2 * workers...
+			int first = w;
+			tasks.add(() -> {
+				int a = first;
+				while (!terminate(loopCounter.get(), best.get())) {
+					publishBest(best, buildSolution(ants.get(a)));
+					if (solutions.incrementAndGet() % numberOfAnts == 0) {
+						asynchronousUpdate(best.get(), loopCounter, startTime, qrtdBuffer);
+					}
+					a = a + workers < ants.size() ? a + workers : first;
+				}
+				return null;
+			});
+		}
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Asynchronous ant colony failed", e);
+		} finally {
+			executor.shutdown();
+		}
+		logCacheStatistics();
 		Utils.outputQRTD(qrtdBuffer, outputFileName);
-		return bestAnt.getProblem();
+		best.get().restore(problem);
+		return problem;
 	}
 
-	private boolean terminate(Integer loop) {
+	/**
+	 * Stores the given solution as the best one if it has a lower cost.
+	 * Retries if another thread changed the best solution meanwhile
+	 * 
+	 * @param best
+	 * @param solution
+	 */
+	private void publishBest(AtomicReference<SolutionSnapshot> best, SolutionSnapshot solution) {
+		SolutionSnapshot current = best.get();
+		while (current == null || current.getCost() > solution.getCost()) {
+			if (best.compareAndSet(current, solution)) {
+				recordTarget(solution);
+				return;
+			}
+			current = best.get();
+		}
+	}
+
+	/**
+	 * Pheromone update of the asynchronous colony, done by one thread at a
+	 * time after every n solutions built by the colony
+	 * 
+	 * @param best
+	 * @param loopCounter
+	 * @param startTime
+	 * @param qrtdBuffer
+	 */
+	private synchronized void asynchronousUpdate(SolutionSnapshot best,
+			AtomicInteger loopCounter, Long startTime, StringBuilder qrtdBuffer) {
+		SolutionSnapshot previousBestAnt = bestAnt;
+		bestAnt = best;
+		updatePheromone(previousBestAnt == null ? best : previousBestAnt,
+				previousBestAnt == null);
+		int loop = loopCounter.getAndIncrement();
+		if (loop % 20 == 0) {
+			LOGGER.debug("Iteration: " + loop);
+			LOGGER.debug("Current best ant's cost: " + bestAnt.getCost());
+		}
+		qrtdBuffer.append(
+				Utils.runtimeDistributionTextValue(startTime, loop + 1, bestAnt.getCost()));
+	}
+
+	/**
+	 * Records the current time as the time to target if the given best
+	 * solution is the first one reaching the target cost
+	 * 
+	 * @param best
+	 */
+	private void recordTarget(SolutionSnapshot best) {
+		if (targetCost != null && best.getCost() <= targetCost) {
+			targetTime.compareAndSet(0L, System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Moment (as given by System.currentTimeMillis) at which a solution first
+	 * reached the target cost, zero if none did
+	 * 
+	 * @return
+	 */
+	public long getTargetTime() {
+		return targetTime.get();
+	}
+
+	/**
+	 * Termination condition of the colony: time or loops limit exhausted, or
+	 * target cost reached by the given best solution
+	 * 
+	 * @param loop
+	 * @param best
+	 * @return
+	 */
+	private boolean terminate(Integer loop, SolutionSnapshot best) {
+		if (targetCost != null && best != null && best.getCost() <= targetCost) {
+			return true;
+		}
 		return System.currentTimeMillis() > this.maxTime || loop >= maxLoops;
 	}
 
@@ -125,54 +374,28 @@ public class ACOHelper {
 	 * Method Used to update the values of the pheromone used by the ants. This
 	 * is invoked on each iteration done over the whole colony in order to
 	 * evaporate pheromone and update the importance of the values for the best
-	 * solution contained by the best ant.
+	 * solution contained by the best ant. Its cost depends on the size of the
+	 * best solution, not on the number of sets, except when the pheromone
+	 * limits change.
 	 * 
 	 * @param currentBestAnt
 	 * @param firstLoop
 	 */
-	public void updatePheromone(Ant currentBestAnt, Boolean firstLoop) {
-		evaporatePheromone();
-		Integer totalCostBestAnt = 0;
-		for (Integer set : bestAnt.getProblem().getCoveredSets()) {
-			totalCostBestAnt += bestAnt.getProblem().getSetElementMap().get(set).getCost();
-		}
+	public void updatePheromone(SolutionSnapshot currentBestAnt, Boolean firstLoop) {
+		pheromone.evaporate(rho);
+		Integer totalCostBestAnt = bestAnt.getCost();
 		Double delta = 1.0 / totalCostBestAnt;
 
 		// update max and min values for pheromone when a new best solution set
 		// is found
-		if (!currentBestAnt.getProblem().getCoveredSets()
-				.equals(this.bestAnt.getProblem().getCoveredSets()) || firstLoop) {
-			maxPheromone = 1 / ((1 - rho) * totalCostBestAnt);
-			minPheromone = epsilon * maxPheromone;
-		}
-
-		Double pheromoneValue;
-		for (Integer set : bestAnt.getProblem().getCoveredSets()) {
-			pheromoneValue = rho * pheromone.get(set) + delta;
-			if (pheromoneValue < maxPheromone && pheromoneValue > minPheromone) {
-				pheromone.put(set, pheromoneValue);
-			} else if (pheromoneValue > maxPheromone) {
-				pheromone.put(set, maxPheromone);
-			} else if (pheromoneValue < minPheromone) {
-				pheromone.put(set, minPheromone);
-			}
+		if (!currentBestAnt.equals(this.bestAnt) || firstLoop) {
+			Double maxPheromone = 1 / ((1 - rho) * totalCostBestAnt);
+			pheromone.setLimits(epsilon * maxPheromone, maxPheromone);
 		}
-	}
 
-	/**
-	 * Method in charge of the pheromone evaporation. Uses rho as the main
-	 * parameter to update the pheromone.
-	 */
-	private void evaporatePheromone() {
-		if (minPheromone == null) {
-			minPheromone = 0.0;
-		}
-		for (Integer set : problem.getSetElementMap().keySet()) {
-			if (pheromone.get(set) * rho < minPheromone) {
-				pheromone.put(set, minPheromone);
-			} else {
-				pheromone.put(set, pheromone.get(set) * rho);
-			}
+		// The pheromone trail keeps the values between the limits
+		for (int set : bestAnt.getSets()) {
+			pheromone.set(set, rho * pheromone.get(set) + delta);
 		}
 	}
 
@@ -190,6 +413,11 @@ public class ACOHelper {
 		private Double epsilon;
 		private Long duration;
 		private Integer maxLoops;
+		private Integer threads;
+		private Boolean asynchronous;
+		private Integer candidateListSize;
+		private Integer cacheSize;
+		private Integer targetCost;
 
 		public ACOHelperBuilder setCoveringProblem(SetCoveringProblem scp) {
 			problem = scp;
@@ -226,8 +454,34 @@ public class ACOHelper {
 			return this;
 		}
 
+		public ACOHelperBuilder threads(Integer threads) {
+			this.threads = threads;
+			return this;
+		}
+
+		public ACOHelperBuilder asynchronous(Boolean asynchronous) {
+			this.asynchronous = asynchronous;
+			return this;
+		}
+
+		public ACOHelperBuilder candidateListSize(Integer candidateListSize) {
+			this.candidateListSize = candidateListSize;
+			return this;
+		}
+
+		public ACOHelperBuilder cacheSize(Integer cacheSize) {
+			this.cacheSize = cacheSize;
+			return this;
+		}
+
+		public ACOHelperBuilder targetCost(Integer targetCost) {
+			this.targetCost = targetCost;
+			return this;
+		}
+
 		public ACOHelper build() {
-			return new ACOHelper(numberOfAnts, problem, beta, rho, epsilon, duration, maxLoops);
+			return new ACOHelper(numberOfAnts, problem, beta, rho, epsilon, duration, maxLoops,
+					threads, asynchronous, candidateListSize, cacheSize, targetCost);
 		}
 	}
 }
@@ -1,39 +1,93 @@
 package be.ac.optimization.heuristic;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.ListUtils;
-import org.apache.commons.lang3.SerializationUtils;
-
 public class Ant {
 	private SetCoveringProblem problem;
-	private HashMap<Integer, Double> pheromone;
-	private HashMap<Integer, Double> heuristicInformation;
+	/**
+	 * Pheromone of each set. Shared among the ants, only read while building
+	 * a solution
+	 */
+	private PheromoneTrail pheromone;
+	/**
+	 * Static heuristic information raised to beta, computed once. The dynamic
+	 * heuristic of a set starts from it on every construction
+	 */
+	private double[] initialHeuristicWeight;
+	/**
+	 * Dynamic heuristic information of each set raised to beta
+	 */
+	private double[] heuristicWeight;
+	/**
+	 * Cached numerator of the probability of choosing each set: its pheromone
+	 * times its heuristic weight. Recomputed only when the pheromone or the
+	 * heuristic information of the set change
+	 */
+	private double[] attractiveness;
+	/**
+	 * Version of the pheromone trail the attractiveness of each set was
+	 * computed with, -1 when the heuristic weight changed since then
+	 */
+	private long[] attractivenessVersion;
+	/**
+	 * Number of uncovered elements of each set in the solution being built,
+	 * decremented as its elements get covered
+	 */
+	private int[] uncoveredInSet;
+	/**
+	 * Construction in which the dynamic state (heuristic weight and
+	 * uncovered elements) of each set was last reset. The state of a set is
+	 * only reset when the construction first reaches it, so starting a
+	 * construction does not go through all the sets
+	 */
+	private int[] constructionOf;
+	/**
+	 * Number of the current construction, increased by every call to solve
+	 */
+	private int construction;
+	/**
+	 * For each element the sets that contain it, best static ratio first
+	 */
+	private CompressedIndex candidateSets;
+	/**
+	 * Maximum number of sets considered to cover an element, the ones with
+	 * the best static ratio. Zero to consider all of them
+	 */
+	private int candidateListSize;
+	/**
+	 * Zobrist hash of the sets covered in the solution being built
+	 */
+	private long solutionHash;
+	private long[] zobristKeys;
 	private Double beta;
 
-	public Ant(SetCoveringProblem scp, HashMap<Integer, Double> pheromone,
-			HashMap<Integer, Double> heuristicInformation, Double beta) {
-		problem = scp;
-		this.pheromone = pheromone;
-		this.heuristicInformation = heuristicInformation;
-		this.beta = beta;
-	}
-
 	/**
-	 * Copy Constructor
+	 * Creates an ant building its solutions on the given problem. The ant
+	 * keeps its own copy of the heuristic information, so ants on different
+	 * problems can build their solutions concurrently
 	 * 
-	 * @param ant
+	 * @param scp
+	 * @param pheromone
+	 * @param heuristicInformation
+	 * @param beta
+	 * @param candidateListSize
 	 */
-	public Ant(Ant ant) {
-		problem = SerializationUtils.clone(ant.getProblem());
-		this.pheromone = ant.pheromone;
-		this.heuristicInformation = ant.getHeuristicInformation();
-		this.beta = ant.getBeta();
+	public Ant(SetCoveringProblem scp, PheromoneTrail pheromone, double[] heuristicInformation,
+			Double beta, int candidateListSize) {
+		problem = scp;
+		this.pheromone = pheromone;
+		this.beta = beta;
+		initialHeuristicWeight = new double[heuristicInformation.length];
+		for (int s = 0; s < heuristicInformation.length; s++) {
+			initialHeuristicWeight[s] = Math.pow(heuristicInformation[s], beta);
+		}
+		heuristicWeight = new double[heuristicInformation.length];
+		attractiveness = new double[heuristicInformation.length];
+		attractivenessVersion = new long[heuristicInformation.length];
+		uncoveredInSet = new int[heuristicInformation.length];
+		constructionOf = new int[heuristicInformation.length];
+		construction = 0;
+		candidateSets = scp.getInstance().getRankedElementSets();
+		this.candidateListSize = candidateListSize;
+		zobristKeys = scp.getInstance().getZobristKeys();
 	}
 
 	/**
@@ -44,6 +98,8 @@ public class Ant {
 	 */
 	public void solve() {
 		problem.uncoverAllSets();
+		solutionHash = 0L;
+		construction++;
 		while (!problem.getUncoveredElements().isEmpty()) {
 			coverNextSet();
 		}
@@ -52,85 +108,117 @@ public class Ant {
 	/**
 	 * Updates the heuristic information based on the input set that has been
 	 * just covered in the solution construction process. Maintains the
-	 * heuristic information as a dynamic one
+	 * heuristic information as a dynamic one: the elements covered for the
+	 * first time by the set are discounted from the counters of the sets
+	 * containing them, and the sets still out of the solution get their
+	 * heuristic information recomputed. Their attractiveness is recomputed
+	 * when they are next considered
 	 * 
-	 * @param coveredSet
-	 */
-	@SuppressWarnings("unchecked")
-	private void updateHeuristicInformation(Integer set) {
-		List<Integer> uncoveredElementsForSet = ListUtils.removeAll(
-				problem.getSetElementMap().get(set).getElems(), problem.getCoveredElements());
-		// Based on the uncovered elements that the parameter set has updates
-		// the heuristic information for the remaining uncovered sets in the
-		// problem
-		Set<Integer> setsToUpdate = new HashSet<>();
-		for (Integer elem : uncoveredElementsForSet) {
-			setsToUpdate.addAll(CollectionUtils.removeAll(problem.getElementSetMap().get(elem),
-					problem.getCoveredSets()));
+	 * @param set
+	 */
+	private void updateHeuristicInformation(int set) {
+		CompressedIndex setElements = problem.getSetElements();
+		CompressedIndex elementSets = problem.getElementSets();
+		int elem;
+		int s;
+		for (int k = setElements.getStart(set); k < setElements.getEnd(set); k++) {
+			elem = setElements.get(k);
+			if (problem.getCoverCount(elem) != 1) {
+				continue;
+			}
+			for (int l = elementSets.getStart(elem); l < elementSets.getEnd(elem); l++) {
+				s = elementSets.get(l);
+				resetIfStale(s);
+				uncoveredInSet[s]--;
+				if (s != set && !problem.isSetCovered(s)) {
+					heuristicWeight[s] = Math.pow(Double.valueOf(uncoveredInSet[s])
+							/ Double.valueOf(problem.getSetCost(s)), beta);
+					attractivenessVersion[s] = -1L;
+				}
+			}
 		}
-		for (Integer s : setsToUpdate) {
-			heuristicInformation.put(s,
-					Double.valueOf(ListUtils.removeAll(problem.getSetElementMap().get(s).getElems(),
-							problem.getCoveredElements()).size())
-							/ Double.valueOf(problem.getSetElementMap().get(s).getCost()));
+	}
+
+	/**
+	 * Resets the dynamic state of the given set to the one of an empty
+	 * solution if it was not reset yet in the current construction
+	 * 
+	 * @param set
+	 */
+	private void resetIfStale(int set) {
+		if (constructionOf[set] != construction) {
+			constructionOf[set] = construction;
+			uncoveredInSet[set] = problem.getSetSize(set);
+			heuristicWeight[set] = initialHeuristicWeight[set];
+			attractivenessVersion[set] = -1L;
+		}
+	}
+
+	/**
+	 * Attractiveness of the given set, recomputed if its heuristic
+	 * information or the pheromone trail changed since it was last computed
+	 * 
+	 * @param set
+	 * @return
+	 */
+	private double getAttractiveness(int set) {
+		resetIfStale(set);
+		long version = pheromone.getVersion();
+		if (attractivenessVersion[set] != version) {
+			attractiveness[set] = pheromone.get(set) * heuristicWeight[set];
+			attractivenessVersion[set] = version;
 		}
+		return attractiveness[set];
 	}
 
 	/**
 	 * Logic to cover the next set in the solution creation. After a set is
 	 * selected to be covered, updates the information on the problem related to
-	 * it
+	 * it. The set is chosen among the candidate list of a random uncovered
+	 * element; as the element is uncovered none of its sets is in the solution
 	 * 
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	private void coverNextSet() {
-		Integer randomElement = RandomUtils.getInstance(null)
-				.getRandomFromSet(problem.getUncoveredElements());
-		problem.getElementSetMap().get(randomElement);
-		ArrayList<Integer> availableSets = (ArrayList<Integer>) ListUtils
-				.removeAll(problem.getElementSetMap().get(randomElement), problem.getCoveredSets());
-		Integer setToCover = getSetToCover(availableSets);
+		int randomElement = problem.getRandomUncoveredElement();
+		int start = candidateSets.getStart(randomElement);
+		int end = candidateSets.getEnd(randomElement);
+		if (candidateListSize > 0 && end - start > candidateListSize) {
+			end = start + candidateListSize;
+		}
+		int setToCover = getSetToCover(start, end);
 		problem.coverSet(setToCover);
+		solutionHash ^= zobristKeys[setToCover];
 		updateHeuristicInformation(setToCover);
 	}
 
 	/**
-	 * Gets the next set to be covered in the solution building process.
+	 * Gets the next set to be covered in the solution building process among
+	 * the candidate sets between the given positions. The probability of each
+	 * set is its attractiveness divided by the sum of the attractiveness of
+	 * all the candidates (roulette wheel selection)
 	 * 
-	 * @param availableSets
+	 * @param start
+	 * @param end
 	 * @return
 	 */
-	private Integer getSetToCover(ArrayList<Integer> availableSets) {
-		Double rand = RandomUtils.getInstance(null).getRandomDouble();
-		Double sum = 0.0;
-		for (Integer set : availableSets) {
-			sum += probabilityForSet(set, availableSets);
+	private int getSetToCover(int start, int end) {
+		double total = 0.0;
+		for (int k = start; k < end; k++) {
+			total += getAttractiveness(candidateSets.get(k));
+		}
+		double rand = problem.getRandom().getRandomDouble() * total;
+		double sum = 0.0;
+		for (int k = start; k < end; k++) {
+			sum += attractiveness[candidateSets.get(k)];
 			if (sum >= rand) {
-				return set;
+				return candidateSets.get(k);
 			}
 		}
 		throw new RuntimeException(
 				"Non Reachable Code. Probability for covering a set should be always reached at a given point");
 	}
 
-	/**
-	 * Using the pheromone and heuristic information returns the probability for
-	 * a set to be chosen from the list of available sets
-	 * 
-	 * @param set
-	 * @param sets
-	 * @return
-	 */
-	private Double probabilityForSet(Integer set, ArrayList<Integer> sets) {
-		Double numerator = pheromone.get(set) * Math.pow(heuristicInformation.get(set), beta);
-		Double denominator = 0.0;
-		for (Integer s : sets) {
-			denominator += pheromone.get(s) * Math.pow(heuristicInformation.get(s), beta);
-		}
-		return numerator / denominator;
-	}
-
 	public SetCoveringProblem getProblem() {
 		return problem;
 	}
@@ -139,28 +227,21 @@ public class Ant {
 		this.problem = problem;
 	}
 
-	public HashMap<Integer, Double> getPheromone() {
+	public PheromoneTrail getPheromone() {
 		return pheromone;
 	}
 
-	public void setPheromone(HashMap<Integer, Double> pheromone) {
-		this.pheromone = pheromone;
-	}
-
-	public HashMap<Integer, Double> getHeuristicInformation() {
-		return heuristicInformation;
-	}
-
-	public void setHeuristicInformation(HashMap<Integer, Double> heuristicInformation) {
-		this.heuristicInformation = heuristicInformation;
-	}
-
 	public Double getBeta() {
 		return beta;
 	}
 
-	public void setBeta(Double beta) {
-		this.beta = beta;
+	/**
+	 * Zobrist hash of the solution built by the last call to {@link #solve()}
+	 * 
+	 * @return
+	 */
+	public long getSolutionHash() {
+		return solutionHash;
 	}
 
 	public Integer getCost() {
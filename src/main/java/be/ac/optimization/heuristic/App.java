@@ -1,8 +1,11 @@
 package be.ac.optimization.heuristic;
 
+import java.io.IOException;
+
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.Logger;
@@ -31,6 +34,15 @@ public class App {
 	private static final String NUMBER_OF_ANTS = "ants";
 	private static final String MAX_LOOPS = "loops";
 	private static final String DURATION = "duration";
+	private static final String CONVERT = "convert";
+	private static final String THREADS = "threads";
+	private static final String ASYNCHRONOUS = "async";
+	private static final String CANDIDATES = "candidates";
+	private static final String CACHE = "cache";
+	private static final String CHAINS = "chains";
+	private static final String SWAP_INTERVAL = "swap";
+	private static final String TARGET = "target";
+	private static final String BEST_KNOWN_COSTS = "targets";
 
 	/**
 	 * Main function called by to execute the application
@@ -40,6 +52,9 @@ public class App {
 	public static void main(String[] args) {
 		long startTime = System.currentTimeMillis();
 		HeuristicSolver scpSolver = readArguments(args);
+		if (scpSolver == null) {
+			return;
+		}
 		scpSolver.execute();
 		long stopTime = System.currentTimeMillis();
 		LOGGER.info("Exec Time: " + (stopTime - startTime));
@@ -77,12 +92,47 @@ public class App {
 				"Rho parameter used in the probabilities of the Ant Colony Solver");
 		options.addOption(NUMBER_OF_ANTS, true, "Number of ants for the Ant Colony Solver");
 		options.addOption(MAX_LOOPS, true, "Maximum number of loops to execute");
-		options.addOption(DURATION, true, "Expected max duration for the execution");
+		options.addOption(DURATION, true, "Expected max duration for the execution in milliseconds");
+		options.addOption(THREADS, true,
+				"Number of threads building the solutions of the ants in parallel");
+		options.addOption(ASYNCHRONOUS, false,
+				"Asynchronous Ant Colony Solver, the threads do not wait for each other");
+		options.addOption(CANDIDATES, true,
+				"Size of the candidate lists of the Ant Colony Solver: number of sets, "
+						+ "with the lowest cost per element, considered to cover an element. "
+						+ "0 to consider all of them");
+		options.addOption(CACHE, true,
+				"Number of solutions of the Ant Colony Solver whose redundancy elimination "
+						+ "result is cached. 0 to disable the cache");
+		options.addOption(CHAINS, true,
+				"Number of chains of the Simulated Annealing, run in parallel at different "
+						+ "temperatures exchanging their states (parallel tempering)");
+		options.addOption(SWAP_INTERVAL, true,
+				"Number of iterations of the Simulated Annealing chains between two "
+						+ "exchanges of their states");
+		options.addOption(TARGET, true,
+				"Target cost, the solvers stop as soon as it is reached");
+		options.addOption(BEST_KNOWN_COSTS, true,
+				"File with the best known cost of the instances, lines 'instance;cost;...' "
+						+ "(as analysis/instances.txt). The cost of the given instance is the "
+						+ "target when no target is given");
+		options.addOption(CONVERT, true,
+				"Path of the binary (.scpb) file where the given instance is stored, "
+						+ "no solver is executed");
 
 		CommandLineParser parser = new DefaultParser();
 		CommandLine cmd;
 		try {
 			cmd = parser.parse(options, args);
+			if (cmd.getOptionValue(CONVERT) != null) {
+				if (cmd.getOptionValue(INSTANCE) == null) {
+					LOGGER.error("Missing -" + INSTANCE + " option: instance file to convert");
+					printUsage(options);
+					return null;
+				}
+				convertInstance(cmd.getOptionValue(INSTANCE), cmd.getOptionValue(CONVERT));
+				return null;
+			}
 			if (cmd.getOptionValue(CH) != null) {
 				builder = builder.constructiveHeuristic(
 						(ConstructiveHeuristic.valueOf(cmd.getOptionValue(CH).toUpperCase())));
@@ -90,6 +140,9 @@ public class App {
 			if (cmd.hasOption(RE)) {
 				builder = builder.re(true);
 			}
+			if (cmd.hasOption(ASYNCHRONOUS)) {
+				builder = builder.asynchronous(true);
+			}
 			if (cmd.getOptionValue(SEED) != null) {
 				builder = builder.seed(Integer.valueOf(cmd.getOptionValue(SEED)));
 			}
@@ -102,6 +155,28 @@ public class App {
 			if (cmd.getOptionValue(DURATION) != null) {
 				builder = builder.duration(Long.valueOf(cmd.getOptionValue(DURATION)));
 			}
+			if (cmd.getOptionValue(THREADS) != null) {
+				builder = builder.threads(positiveValue(cmd, THREADS));
+			}
+			if (cmd.getOptionValue(CANDIDATES) != null) {
+				builder = builder.candidateListSize(Integer.valueOf(cmd.getOptionValue(CANDIDATES)));
+			}
+			if (cmd.getOptionValue(CACHE) != null) {
+				builder = builder.cacheSize(Integer.valueOf(cmd.getOptionValue(CACHE)));
+			}
+			if (cmd.getOptionValue(CHAINS) != null) {
+				builder = builder.chains(positiveValue(cmd, CHAINS));
+			}
+			if (cmd.getOptionValue(SWAP_INTERVAL) != null) {
+				builder = builder.swapInterval(positiveValue(cmd, SWAP_INTERVAL));
+			}
+			if (cmd.getOptionValue(TARGET) != null) {
+				builder = builder.targetCost(Integer.valueOf(cmd.getOptionValue(TARGET)));
+			} else if (cmd.getOptionValue(BEST_KNOWN_COSTS) != null
+					&& cmd.getOptionValue(INSTANCE) != null) {
+				builder = builder.targetCost(Utils.readBestKnownCost(
+						cmd.getOptionValue(BEST_KNOWN_COSTS), cmd.getOptionValue(INSTANCE)));
+			}
 			if (cmd.getOptionValue(TEMPERATURE) != null) {
 				builder = builder.temperature(Double.valueOf(cmd.getOptionValue(TEMPERATURE)));
 			}
@@ -131,11 +206,53 @@ public class App {
 
 			return builder.build();
 		} catch (ParseException e) {
-			LOGGER.error(e);
+			LOGGER.error(e.getMessage());
+			printUsage(options);
 		}
 		return null;
 	}
 
+	/**
+	 * Reads the value of the given option, which has to be a positive integer
+	 * 
+	 * @param cmd
+	 * @param option
+	 * @return
+	 * @throws ParseException
+	 */
+	private static Integer positiveValue(CommandLine cmd, String option) throws ParseException {
+		Integer value = Integer.valueOf(cmd.getOptionValue(option));
+		if (value < 1) {
+			throw new ParseException("The value of -" + option + " must be at least 1");
+		}
+		return value;
+	}
+
+	/**
+	 * Prints the description of the command line options
+	 * 
+	 * @param options
+	 */
+	private static void printUsage(Options options) {
+		new HelpFormatter().printHelp("java -jar set-covering-problem.jar", options);
+	}
+
+	/**
+	 * Stores the given text instance in the pre-compiled binary format, which
+	 * can later be given as the instance to solve
+	 * 
+	 * @param instanceFile
+	 * @param binaryFile
+	 */
+	private static void convertInstance(String instanceFile, String binaryFile) {
+		try {
+			InstanceReader.read(instanceFile).writeBinary(binaryFile);
+			LOGGER.info("Binary instance stored in: " + binaryFile);
+		} catch (IOException e) {
+			LOGGER.error(e);
+		}
+	}
+
 	/**
 	 * Method to get the default parameters to execute the application in case
 	 * none are provided in the command line interface
@@ -146,7 +263,8 @@ public class App {
 		HeuristicSolverBuilder builder = new HeuristicSolverBuilder();
 		builder.constructiveHeuristic(ConstructiveHeuristic.CH1).re(false).improvementType(null)
 				.seed(1).stochasticLocalSearch(null).cooling(0.95).temperature(800.0)
-				.maxLoops(1000);
+				.maxLoops(1000).threads(1).asynchronous(false)
+				.candidateListSize(0).cacheSize(1024).chains(1).swapInterval(100);
 		return builder;
 	}
 }
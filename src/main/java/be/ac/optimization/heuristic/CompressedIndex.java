@@ -0,0 +1,132 @@
+package be.ac.optimization.heuristic;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compressed sparse representation of the incidence between the keys of one
+ * dimension of the problem (rows or columns) and the values of the other one.
+ * The values related to the key k are stored in indices[offsets[k]] up to
+ * indices[offsets[k + 1]] (exclusive), sorted in ascending order.
+ *
+ * @author Fabio Navarrete
+ *
+ */
+public final class CompressedIndex implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -2081547413567391130L;
+
+	/**
+	 * Position in the indices array where the values of each key start. Has
+	 * one extra trailing position holding the total number of values
+	 *
+	 * @serial
+	 */
+	private final int[] offsets;
+	/**
+	 * Values of all the keys, one block after the other
+	 *
+	 * @serial
+	 */
+	private final int[] indices;
+
+	public CompressedIndex(int[] offsets, int[] indices) {
+		this.offsets = offsets;
+		this.indices = indices;
+	}
+
+	/**
+	 * Number of keys in the index
+	 *
+	 * @return
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Total number of values stored in the index
+	 *
+	 * @return
+	 */
+	public int getNumValues() {
+		return offsets[offsets.length - 1];
+	}
+
+	public int getStart(int key) {
+		return offsets[key];
+	}
+
+	public int getEnd(int key) {
+		return offsets[key + 1];
+	}
+
+	/**
+	 * Value stored at the given position of the indices array
+	 *
+	 * @param position
+	 * @return
+	 */
+	public int get(int position) {
+		return indices[position];
+	}
+
+	/**
+	 * Number of values related to the given key
+	 *
+	 * @param key
+	 * @return
+	 */
+	public int count(int key) {
+		return offsets[key + 1] - offsets[key];
+	}
+
+	/**
+	 * Checks whether the value is related to the given key
+	 *
+	 * @param key
+	 * @param value
+	 * @return
+	 */
+	public boolean contains(int key, int value) {
+		return Arrays.binarySearch(indices, offsets[key], offsets[key + 1], value) >= 0;
+	}
+
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	public int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Builds the index for the opposite direction: for each of the values
+	 * (from 0 to numValues - 1) the keys related to it. As the keys are
+	 * visited in ascending order the resulting blocks are sorted as well
+	 *
+	 * @param numValues
+	 * @return
+	 */
+	public CompressedIndex transpose(int numValues) {
+		int[] tOffsets = new int[numValues + 1];
+		for (int k = 0; k < getNumValues(); k++) {
+			tOffsets[indices[k] + 1]++;
+		}
+		for (int v = 0; v < numValues; v++) {
+			tOffsets[v + 1] += tOffsets[v];
+		}
+		int[] tIndices = new int[getNumValues()];
+		int[] next = Arrays.copyOf(tOffsets, numValues);
+		for (int key = 0; key < size(); key++) {
+			for (int k = offsets[key]; k < offsets[key + 1]; k++) {
+				tIndices[next[indices[k]]++] = key;
+			}
+		}
+		return new CompressedIndex(tOffsets, tIndices);
+	}
+
+}
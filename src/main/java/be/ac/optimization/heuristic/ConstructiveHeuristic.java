@@ -1,5 +1,60 @@
 package be.ac.optimization.heuristic;
 
+/**
+ * Constructive heuristics for the set covering problem. Each one defines the
+ * greedy value of a set (the lower the better) used to choose the sets when
+ * a partial solution is repaired locally
+ * 
+ * @author Fabio Navarrete
+ *
+ */
 public enum ConstructiveHeuristic {
-	CH1, CH2, CH3, CH4;
+	/**
+	 * Random value, so the choice among the candidate sets is random
+	 */
+	CH1 {
+		@Override
+		public double greedyValue(SetCoveringProblem problem, int set) {
+			return problem.getRandom().getRandomDouble();
+		}
+	},
+	/**
+	 * Cost of the set
+	 */
+	CH2 {
+		@Override
+		public double greedyValue(SetCoveringProblem problem, int set) {
+			return problem.getSetCost(set);
+		}
+	},
+	/**
+	 * Cost of the set divided by its number of elements
+	 */
+	CH3 {
+		@Override
+		public double greedyValue(SetCoveringProblem problem, int set) {
+			return Double.valueOf(problem.getSetCost(set))
+					/ Double.valueOf(problem.getSetSize(set));
+		}
+	},
+	/**
+	 * Cost of the set divided by the number of uncovered elements it would
+	 * cover
+	 */
+	CH4 {
+		@Override
+		public double greedyValue(SetCoveringProblem problem, int set) {
+			return Double.valueOf(problem.getSetCost(set))
+					/ Double.valueOf(problem.countUncoveredElements(set));
+		}
+	};
+
+	/**
+	 * Greedy value of the given set in the current state of the problem
+	 * 
+	 * @param problem
+	 * @param set
+	 * @return
+	 */
+	public abstract double greedyValue(SetCoveringProblem problem, int set);
 }
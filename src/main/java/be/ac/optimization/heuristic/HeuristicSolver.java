@@ -1,10 +1,15 @@
 package be.ac.optimization.heuristic;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.lang3.SerializationUtils;
-import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.log4j.Logger;
 
 import be.ac.optimization.heuristic.ACOHelper.ACOHelperBuilder;
@@ -13,6 +18,23 @@ public final class HeuristicSolver {
 	private final static Logger LOGGER = Logger.getLogger(HeuristicSolver.class);
 	private static final Integer NOT_IMPROVEMENT_THRESHOLD = 50;
 	private static final Double LOWER_THRESHOLD_METROPOLIS_ACCEPTANCE = 0.03;
+	/**
+	 * Fraction of the initial temperature below which the Simulated Annealing
+	 * is considered frozen, reached at the end of the time budget when the
+	 * cooling is derived from the elapsed time
+	 */
+	private static final double FINAL_TEMPERATURE_RATIO = 0.003;
+	/**
+	 * Heuristics randomly chosen to repair the neighbours in the simulated
+	 * annealing
+	 */
+	private static final ConstructiveHeuristic[] NEIGHBOUR_REPAIR_HEURISTICS = {
+			ConstructiveHeuristic.CH2, ConstructiveHeuristic.CH3, ConstructiveHeuristic.CH4 };
+	/**
+	 * Ratio between the temperatures of two adjacent chains of the parallel
+	 * tempering
+	 */
+	private static final double TEMPERATURE_LADDER_RATIO = 1.5;
 	// private static final Double HIGHER_THRESHOLD_METROPOLIS_ACCEPTANCE = 0.5;
 
 	/**
@@ -31,6 +53,10 @@ public final class HeuristicSolver {
 	 * Instance of the set covering problem
 	 */
 	private SetCoveringProblem setCoveringProblem;
+	/**
+	 * Source of random numbers of the solver, created from the seed
+	 */
+	private final RandomUtils random;
 	/**
 	 * Stochastic Local Search Algorithm
 	 */
@@ -38,7 +64,7 @@ public final class HeuristicSolver {
 	/**
 	 * Temperature value for the Simulated Annealing local search
 	 */
-	private Double temperature;
+	private final Double temperature;
 	/**
 	 * Cooling parameter for the Simulated Annealing local search
 	 */
@@ -60,18 +86,67 @@ public final class HeuristicSolver {
 	 */
 	private final Integer numberOfAnts;
 
+	/**
+	 * Time budget in milliseconds. When given, the cooling of the Simulated
+	 * Annealing is derived from the elapsed time instead of the iterations
+	 */
 	private Long duration;
 	private final Integer maxLoops;
+	/**
+	 * Number of threads used by the parallel algorithms
+	 */
+	private final Integer threads;
+	/**
+	 * Run the Ant Colony Algorithm without synchronising the threads on each
+	 * iteration
+	 */
+	private final Boolean asynchronous;
+	/**
+	 * Size of the candidate lists of the Ant Colony Algorithm, zero to use
+	 * all the sets of an element
+	 */
+	private final Integer candidateListSize;
+	/**
+	 * Number of redundancy elimination results cached by the Ant Colony
+	 * Algorithm, zero to disable the cache
+	 */
+	private final Integer cacheSize;
+	/**
+	 * Number of chains of the Simulated Annealing, run in parallel at
+	 * different temperatures when greater than one (parallel tempering)
+	 */
+	private final Integer chains;
+	/**
+	 * Number of iterations of the chains of the parallel tempering between
+	 * two exchanges of their states
+	 */
+	private final Integer swapInterval;
+	/**
+	 * Cost at which the algorithms stop, null to run until their own
+	 * termination conditions
+	 */
+	private final Integer targetCost;
+	/**
+	 * Moment the target cost was first reached, zero while it is not
+	 */
+	private final AtomicLong targetTime = new AtomicLong();
+	/**
+	 * Moment the search started, once the set up of the algorithm (and the
+	 * calibration of its duration) is done. Reference of the time to target
+	 */
+	private long searchStartTime;
 
 	private HeuristicSolver(ConstructiveHeuristic constructiveHeuristic, Boolean re,
 			ImprovementType improvementType, String instanceFile, Integer seed,
 			StochasticLocalSearch stochasticLocalSearch, Double temperature, Double cooling,
 			Double beta, Double epsilon, Double rho, Integer numberOfAnts, Long duration,
-			Integer maxLoops) {
+			Integer maxLoops, Integer threads, Boolean asynchronous, Integer candidateListSize,
+			Integer cacheSize, Integer chains, Integer swapInterval, Integer targetCost) {
 		this.constructiveHeuristic = constructiveHeuristic;
 		this.re = re;
 		this.improvementType = improvementType;
-		this.setCoveringProblem = new SetCoveringProblem(instanceFile);
+		this.random = new RandomUtils(seed);
+		this.setCoveringProblem = new SetCoveringProblem(instanceFile, random);
 		this.stochasticLocalSearch = stochasticLocalSearch;
 		this.temperature = temperature;
 		this.cooling = cooling;
@@ -81,13 +156,20 @@ public final class HeuristicSolver {
 		this.numberOfAnts = numberOfAnts;
 		this.duration = duration;
 		this.maxLoops = maxLoops;
-		RandomUtils.getInstance(seed);
+		this.threads = threads;
+		this.asynchronous = asynchronous;
+		this.candidateListSize = candidateListSize;
+		this.cacheSize = cacheSize;
+		this.chains = chains == null ? 1 : chains;
+		this.swapInterval = swapInterval;
+		this.targetCost = targetCost;
 	}
 
 	/**
 	 * Method that runs the algorithm to solve the set covering problem
 	 */
 	public void execute() {
+		searchStartTime = System.currentTimeMillis();
 
 		Integer costBeforeRE = null;
 		Integer costAfterRE = null;
@@ -118,6 +200,7 @@ public final class HeuristicSolver {
 				setCoveringProblem.redundancyElimination();
 			}
 			costAfterRE = setCoveringProblem.getCoveredSetsCost();
+			recordTarget(costAfterRE);
 
 			costBeforeImprovement = setCoveringProblem.getCoveredSetsCost();
 
@@ -125,10 +208,10 @@ public final class HeuristicSolver {
 				// iterativeImprovement();
 				switch (improvementType) {
 				case BI:
-					this.iterativeBestImprovement();
+					this.iterativeBestImprovement(targetCost);
 					break;
 				case FI:
-					this.iterativeFirstImprovement();
+					this.iterativeFirstImprovement(targetCost);
 					break;
 				}
 			}
@@ -139,21 +222,37 @@ public final class HeuristicSolver {
 			case ACO:
 				ACOHelperBuilder helperBuilder = new ACOHelperBuilder();
 				helperBuilder.beta(beta).epsilon(epsilon).rho(rho).numberOfAnts(numberOfAnts)
-						.setCoveringProblem(setCoveringProblem).maxLoops(maxLoops);
+						.setCoveringProblem(setCoveringProblem).maxLoops(maxLoops).threads(threads)
+						.asynchronous(asynchronous).candidateListSize(candidateListSize)
+						.cacheSize(cacheSize).targetCost(targetCost);
 				if (duration == null) {
 					duration = computeDuration();
 				}
 				helperBuilder.duration(duration);
-				this.setCoveringProblem = helperBuilder.build().execute();
+				ACOHelper helper = helperBuilder.build();
+				searchStartTime = System.currentTimeMillis();
+				this.setCoveringProblem = helper.execute();
+				targetTime.compareAndSet(0L, helper.getTargetTime());
 				break;
 			case SA:
-				this.simulatedAnnealing();
+				if (chains > 1) {
+					this.parallelTempering();
+				} else {
+					this.simulatedAnnealing();
+				}
 				break;
 			}
 		}
 
 		Integer costAfterImprovement = setCoveringProblem.getCoveredSetsCost();
 		LOGGER.info("Total cost: " + costAfterImprovement);
+		if (targetCost != null) {
+			if (targetTime.get() != 0L) {
+				LOGGER.info("Time to target: " + (targetTime.get() - searchStartTime));
+			} else {
+				LOGGER.info("Target not reached: " + targetCost);
+			}
+		}
 		if (improvementType != null && stochasticLocalSearch == null) {
 			LOGGER.info("Improvement profit: " + (costBeforeImprovement > costAfterImprovement));
 			LOGGER.info(
@@ -177,7 +276,7 @@ public final class HeuristicSolver {
 	private Long computeDuration() {
 		long initialTime = System.currentTimeMillis();
 		setCoveringProblem.ch4Solution();
-		iterativeFirstImprovement();
+		iterativeFirstImprovement(null);
 		return (System.currentTimeMillis() - initialTime) * 100;
 	}
 
@@ -185,17 +284,23 @@ public final class HeuristicSolver {
 	 * Implementation for the iterative first improvement method. After removing
 	 * a random set, takes the current uncovered sets and try to put them in the
 	 * solution starting from the less expensive one. If all the uncovered sets
-	 * are tried the process is finished
+	 * are tried the process is finished, as well as when the target cost is
+	 * reached. The neighbours are evaluated in place and reverted through the
+	 * journal of moves of the problem
+	 * 
+	 * @param target
+	 *            cost at which the improvement stops, null to run until no
+	 *            improvement is found
 	 */
-	private void iterativeFirstImprovement() {
-		SetCoveringProblem coverProblemFI = SerializationUtils.clone(setCoveringProblem);
+	private void iterativeFirstImprovement(Integer target) {
+		SetCoveringProblem coverProblemFI = new SetCoveringProblem(setCoveringProblem);
 		Iterator<Integer> uncovSetIter;
 		Integer currentCost = coverProblemFI.getCoveredSetsCost();
-		HashSet<Integer> iterCurrentCoveredSets;
-		HashSet<Integer> currentCoveredSets;
+		int currentMark;
+		int iterMark;
 
 		Boolean improvement = true;
-		while (improvement) {
+		while (improvement && (target == null || currentCost > target)) {
 			improvement = false;
 
 			// Set fixed order to check neighborhoods
@@ -203,10 +308,9 @@ public final class HeuristicSolver {
 
 			// Uncover random set from the currently covered sets (remove random
 			// column)
-			currentCoveredSets = new HashSet<>(coverProblemFI.getCoveredSets());
-			coverProblemFI.uncoverSet(RandomUtils.getInstance(null)
-					.getRandomFromSet(coverProblemFI.getCoveredSets()));
-			iterCurrentCoveredSets = new HashSet<>(coverProblemFI.getCoveredSets());
+			currentMark = coverProblemFI.beginMoves();
+			coverProblemFI.uncoverSet(coverProblemFI.getRandomCoveredSet());
+			iterMark = coverProblemFI.markMoves();
 
 			while (uncovSetIter.hasNext()) {
 				// Attempt to cover the gap by trying to use the uncovered sets
@@ -222,17 +326,19 @@ public final class HeuristicSolver {
 				if (coverProblemFI.getUncoveredElements().isEmpty()
 						&& currentCost > coverProblemFI.getCoveredSetsCost()) {
 					improvement = true;
-					uncovSetIter.remove();
 					currentCost = coverProblemFI.getCoveredSetsCost();
-					currentCoveredSets = new HashSet<>(coverProblemFI.getCoveredSets());
+					if (target != null) {
+						recordTarget(currentCost);
+					}
 					break;
 				}
-				coverProblemFI.restoreCoveredSets(iterCurrentCoveredSets);
+				coverProblemFI.undoMoves(iterMark);
 			}
 
 			if (!coverProblemFI.getUncoveredElements().isEmpty()) {
-				coverProblemFI.restoreCoveredSets(currentCoveredSets);
+				coverProblemFI.undoMoves(currentMark);
 			}
+			coverProblemFI.endMoves();
 		}
 
 		LOGGER.debug("First Improvement Final Cost: " + coverProblemFI.getCoveredSetsCost());
@@ -240,25 +346,35 @@ public final class HeuristicSolver {
 		LOGGER.debug("Uncovered elements: "
 				+ Utils.printableCollection(coverProblemFI.getUncoveredElements()));
 
-		this.setCoveringProblem = SerializationUtils.clone(coverProblemFI);
+		this.setCoveringProblem = coverProblemFI;
 
 	}
 
 	/**
-	 * Method to perform the iterative best improvement method.
+	 * Method to perform the iterative best improvement method. Every neighbour
+	 * is evaluated in place and reverted through the journal of moves of the
+	 * problem. As the redundancy elimination is deterministic, only the set
+	 * added by the best neighbour is kept, and that neighbour is rebuilt once
+	 * all of them have been tried. The process stops when no improvement is
+	 * found or the target cost is reached
+	 * 
+	 * @param target
+	 *            cost at which the improvement stops, null to run until no
+	 *            improvement is found
 	 */
-	private void iterativeBestImprovement() {
-		SetCoveringProblem coverProblemBI = SerializationUtils.clone(setCoveringProblem);
+	private void iterativeBestImprovement(Integer target) {
+		SetCoveringProblem coverProblemBI = new SetCoveringProblem(setCoveringProblem);
 		Iterator<Integer> uncovSetIter;
-		HashSet<Integer> iterCurrentCoveredSets;
-
-		MutablePair<Integer, HashSet<Integer>> bestFound = new MutablePair<Integer, HashSet<Integer>>(
-				coverProblemBI.getCoveredSetsCost(),
-				new HashSet<>(coverProblemBI.getCoveredSets()));
+		Integer bestCost = coverProblemBI.getCoveredSetsCost();
+		int bestNeighbour;
+		int neighbour;
+		int currentMark;
+		int iterMark;
 
 		Boolean improvement = true;
-		while (improvement) {
+		while (improvement && (target == null || bestCost > target)) {
 			improvement = false;
+			bestNeighbour = -1;
 
 			// Set fixed order to check neighborhoods and make sure all of them
 			// are covered
@@ -266,28 +382,37 @@ public final class HeuristicSolver {
 
 			// Uncover random set from the currently covered sets (remove random
 			// column)
-			coverProblemBI.uncoverSet(RandomUtils.getInstance(null)
-					.getRandomFromSet(coverProblemBI.getCoveredSets()));
-			iterCurrentCoveredSets = new HashSet<>(coverProblemBI.getCoveredSets());
+			currentMark = coverProblemBI.beginMoves();
+			coverProblemBI.uncoverSet(coverProblemBI.getRandomCoveredSet());
+			iterMark = coverProblemBI.markMoves();
 
 			// Go through the neighbours and check if a better solution than the
 			// current one is found
 			while (uncovSetIter.hasNext()) {
-				coverProblemBI.coverSet(uncovSetIter.next());
+				neighbour = uncovSetIter.next();
+				coverProblemBI.coverSet(neighbour);
 				coverProblemBI.redundancyElimination();
 
 				// If a better solution is found, save it as the best found and
 				// keep trying the remaining neighbours
 				if (coverProblemBI.getUncoveredElements().isEmpty()
-						&& bestFound.getLeft() > coverProblemBI.getCoveredSetsCost()) {
+						&& bestCost > coverProblemBI.getCoveredSetsCost()) {
 					improvement = true;
-					uncovSetIter.remove();
-					bestFound.setLeft(coverProblemBI.getCoveredSetsCost());
-					bestFound.setRight(new HashSet<>(coverProblemBI.getCoveredSets()));
+					bestCost = coverProblemBI.getCoveredSetsCost();
+					bestNeighbour = neighbour;
 				}
-				coverProblemBI.restoreCoveredSets(iterCurrentCoveredSets);
+				coverProblemBI.undoMoves(iterMark);
 			}
-			coverProblemBI.restoreCoveredSets(bestFound.getRight());
+			if (improvement) {
+				coverProblemBI.coverSet(bestNeighbour);
+				coverProblemBI.redundancyElimination();
+				if (target != null) {
+					recordTarget(bestCost);
+				}
+			} else {
+				coverProblemBI.undoMoves(currentMark);
+			}
+			coverProblemBI.endMoves();
 		}
 
 		LOGGER.debug("Best Improvement Final Cost: " + coverProblemBI.getCoveredSetsCost());
@@ -295,94 +420,292 @@ public final class HeuristicSolver {
 		LOGGER.debug("Uncovered elements: "
 				+ Utils.printableCollection(coverProblemBI.getUncoveredElements()));
 
-		this.setCoveringProblem = SerializationUtils.clone(coverProblemBI);
+		this.setCoveringProblem = coverProblemBI;
 	}
 
 	/**
 	 * Implementation of the Simulated Annealing Stochastic Local Search.
 	 * Uncovering a random set the algorithm uses the metropolis condition and
 	 * the given temperature parameter to define whether a proposed solution
-	 * (taken from the current solution neighbourhood) is accepted or not.
+	 * (taken from the current solution neighbourhood) is accepted or not. The
+	 * neighbour is built in place on the current solution and undone through
+	 * the journal of moves when it is rejected, so an iteration costs the size
+	 * of the move and allocates no objects. With a time budget the temperature
+	 * follows the elapsed time, so the run ends when the budget does, and it
+	 * stops as soon as the target cost, if any, is reached. A line of the
+	 * quality runtime distribution is recorded each time the best cost found
+	 * improves, so its size does not grow with the duration of the run.
 	 */
 	private void simulatedAnnealing() {
-		SetCoveringProblem coverProblemSA = SerializationUtils.clone(setCoveringProblem);
-		SetCoveringProblem neighbourProblem = SerializationUtils.clone(setCoveringProblem);
-		Integer notImprovementCounter = 0;
-		Double currentMetropolisAcceptance = 1.0;
-		Double initTemp = temperature;
-		Integer loopCounter = 0;
-		Integer previousCost;
-		Integer currentCost;
-		Long startTime = System.currentTimeMillis();
+		SetCoveringProblem coverProblemSA = new SetCoveringProblem(setCoveringProblem);
+		int notImprovementCounter = 0;
+		double currentMetropolisAcceptance = 1.0;
+		double initTemp = temperature;
+		double currentTemp = temperature;
+		int loopCounter = 0;
+		int currentCost = coverProblemSA.getCost();
+		int bestCost = currentCost;
+		int previousCost;
+		int neighbourCost;
+		int mark;
+		long startTime = System.currentTimeMillis();
 		StringBuilder qrtdBuffer = new StringBuilder();
 		String outputFileName = Utils.getQRTDOutputFileName(startTime,
 				setCoveringProblem.getInstanceFile());
+		Utils.appendRuntimeDistributionValue(qrtdBuffer, startTime, bestCost);
 
 		while (!terminateSimulatedAnnealing(notImprovementCounter, currentMetropolisAcceptance,
-				temperature, initTemp)) {
-			previousCost = coverProblemSA.getCoveredSetsCost();
-			neighbourProblem = generateNeighbourSA(coverProblemSA, neighbourProblem);
-			currentMetropolisAcceptance = SimulatedAnnealingHelper.pAccept(temperature,
-					coverProblemSA, neighbourProblem);
-			LOGGER.trace("f(s)=" + coverProblemSA.getCoveredSetsCost());
-			LOGGER.trace("f'(s)=" + neighbourProblem.getCoveredSetsCost());
-			coverProblemSA = SimulatedAnnealingHelper.acceptedSCP(temperature,
-					currentMetropolisAcceptance, coverProblemSA, neighbourProblem);
-			currentCost = coverProblemSA.getCoveredSetsCost();
-			neighbourProblem = SerializationUtils.clone(coverProblemSA);
-			notImprovementCounter = currentCost.equals(previousCost) ? notImprovementCounter + 1
-					: 0;
-			temperature = cool(temperature, initTemp, loopCounter);
+				currentTemp, initTemp, currentCost, System.currentTimeMillis() - startTime)) {
+			previousCost = currentCost;
+			mark = coverProblemSA.beginMoves();
+			generateNeighbourSA(coverProblemSA);
+			neighbourCost = coverProblemSA.getCost();
+			currentMetropolisAcceptance = SimulatedAnnealingHelper.pAccept(currentTemp,
+					currentCost, neighbourCost);
+			if (LOGGER.isTraceEnabled()) {
+				LOGGER.trace("f(s)=" + currentCost);
+				LOGGER.trace("f'(s)=" + neighbourCost);
+			}
+			if (SimulatedAnnealingHelper.accept(currentMetropolisAcceptance, random)) {
+				currentCost = neighbourCost;
+			} else {
+				coverProblemSA.undoMoves(mark);
+			}
+			coverProblemSA.endMoves();
+			notImprovementCounter = currentCost == previousCost ? notImprovementCounter + 1 : 0;
+			currentTemp = cool(currentTemp, initTemp, loopCounter,
+					System.currentTimeMillis() - startTime);
 			loopCounter++;
-			LOGGER.trace("Temperature: " + temperature);
-			LOGGER.trace("Metropolis Acceptance: " + currentMetropolisAcceptance);
-			qrtdBuffer.append(Utils.runtimeDistributionTextValue(startTime, loopCounter,
-					coverProblemSA.getCoveredSetsCost()));
+			if (LOGGER.isTraceEnabled()) {
+				LOGGER.trace("Temperature: " + currentTemp);
+				LOGGER.trace("Metropolis Acceptance: " + currentMetropolisAcceptance);
+			}
+			if (currentCost < bestCost) {
+				bestCost = currentCost;
+				Utils.appendRuntimeDistributionValue(qrtdBuffer, startTime, bestCost);
+				recordTarget(bestCost);
+			}
 		}
 		Utils.outputQRTD(qrtdBuffer, outputFileName);
 		this.setCoveringProblem = coverProblemSA;
 	}
 
 	/**
-	 * Creates a neighbour for the simulated annealing algorithm removing a
-	 * random covered set and filling its gap by randomly choosing one of the
-	 * constructive heuristics defined for the set covering problem
+	 * Parallel tempering version of the Simulated Annealing. Several chains,
+	 * each one on its own thread, anneal copies of the solution at
+	 * temperatures growing geometrically from the one of the single chain
+	 * algorithm. Every given number of iterations the chains wait for each
+	 * other and the states of adjacent temperatures are exchanged with the
+	 * replica exchange acceptance probability, so the good solutions found by
+	 * the hot chains reach the cold ones. The cooling schedule and the
+	 * termination condition are the ones of the coldest chain, except for the
+	 * target cost, which is checked against the best solution of all the
+	 * chains. Every chain
+	 * has its own source of random numbers, split from the one of the solver,
+	 * so the result does not depend on the scheduling of the threads. The best
+	 * solution found by any of the chains is returned
+	 */
+	private void parallelTempering() {
+		AnnealingChain[] ladder = new AnnealingChain[chains];
+		for (int i = 0; i < chains; i++) {
+			SetCoveringProblem chainProblem = new SetCoveringProblem(setCoveringProblem);
+			chainProblem.setRandom(random.split());
+			ladder[i] = new AnnealingChain(chainProblem, Math.pow(TEMPERATURE_LADDER_RATIO, i));
+		}
+		AnnealingChain coldest = ladder[0];
+		int loopCounter = 0;
+		int bestCost = coldest.best.getCost();
+		int ladderBestCost;
+		long startTime = System.currentTimeMillis();
+		StringBuilder qrtdBuffer = new StringBuilder();
+		String outputFileName = Utils.getQRTDOutputFileName(startTime,
+				setCoveringProblem.getInstanceFile());
+		Utils.appendRuntimeDistributionValue(qrtdBuffer, startTime, bestCost);
+		ExecutorService executor = Executors.newFixedThreadPool(chains);
+		List<Callable<Void>> tasks = new ArrayList<>(chains);
+		try {
+			while (!terminateSimulatedAnnealing(coldest.notImprovementCounter,
+					coldest.metropolisAcceptance,
+					cool(temperature, temperature, loopCounter,
+							System.currentTimeMillis() - startTime),
+					temperature, bestCost, System.currentTimeMillis() - startTime)) {
+				int firstLoop = loopCounter;
+				tasks.clear();
+				for (AnnealingChain chain : ladder) {
+					tasks.add(() -> {
+						annealChain(chain, firstLoop, startTime);
+						return null;
+					});
+				}
+				for (Future<Void> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+				loopCounter += swapInterval;
+				exchangeStates(ladder,
+						cool(temperature, temperature, loopCounter,
+								System.currentTimeMillis() - startTime),
+						loopCounter / swapInterval);
+				ladderBestCost = Integer.MAX_VALUE;
+				for (AnnealingChain chain : ladder) {
+					ladderBestCost = Math.min(ladderBestCost, chain.best.getCost());
+				}
+				if (ladderBestCost < bestCost) {
+					bestCost = ladderBestCost;
+					Utils.appendRuntimeDistributionValue(qrtdBuffer, startTime, bestCost);
+				}
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Execution of the annealing chains failed", e);
+		} finally {
+			executor.shutdown();
+		}
+		Utils.outputQRTD(qrtdBuffer, outputFileName);
+
+		SolutionSnapshot best = coldest.best;
+		for (AnnealingChain chain : ladder) {
+			if (chain.best.getCost() < best.getCost()) {
+				best = chain.best;
+			}
+		}
+		best.restore(coldest.problem);
+		coldest.problem.setRandom(random);
+		this.setCoveringProblem = coldest.problem;
+	}
+
+	/**
+	 * Runs the given chain of the parallel tempering for an interval of
+	 * iterations, starting from the given one, which defines its temperature
+	 * with the cooling schedule together with the elapsed time. The chain
+	 * stops earlier if the time budget is exhausted or it reaches the target
+	 * cost
 	 * 
-	 * @param coverProblemSA
-	 * @param neighbourProblem
-	 * @return
+	 * @param chain
+	 * @param firstLoop
+	 * @param startTime
+	 */
+	private void annealChain(AnnealingChain chain, int firstLoop, long startTime) {
+		SetCoveringProblem chainProblem = chain.problem;
+		double currentTemp;
+		int previousCost;
+		int neighbourCost;
+		int mark;
+		long elapsedTime;
+		for (int loop = firstLoop; loop < firstLoop + swapInterval; loop++) {
+			elapsedTime = System.currentTimeMillis() - startTime;
+			currentTemp = cool(temperature, temperature, loop, elapsedTime)
+					* chain.temperatureFactor;
+			if (currentTemp <= 0 || (duration != null && elapsedTime >= duration)
+					|| targetTime.get() != 0L) {
+				return;
+			}
+			previousCost = chain.cost;
+			mark = chainProblem.beginMoves();
+			generateNeighbourSA(chainProblem);
+			neighbourCost = chainProblem.getCost();
+			chain.metropolisAcceptance = SimulatedAnnealingHelper.pAccept(currentTemp,
+					chain.cost, neighbourCost);
+			if (SimulatedAnnealingHelper.accept(chain.metropolisAcceptance,
+					chainProblem.getRandom())) {
+				chain.cost = neighbourCost;
+			} else {
+				chainProblem.undoMoves(mark);
+			}
+			chainProblem.endMoves();
+			chain.notImprovementCounter = chain.cost == previousCost
+					? chain.notImprovementCounter + 1 : 0;
+			if (chain.cost < chain.best.getCost()) {
+				chain.best = SolutionSnapshot.of(chainProblem);
+				recordTarget(chain.cost);
+			}
+		}
+	}
+
+	/**
+	 * Replica exchange step of the parallel tempering: the states of adjacent
+	 * chains are swapped with probability min(1, exp((c_i - c_j) (1/T_i -
+	 * 1/T_j))), always when the hotter chain holds the better solution. The
+	 * pairs compared alternate between the ones starting at an even and at an
+	 * odd chain. The acceptance statistics stay with the temperatures
+	 * 
+	 * @param ladder
+	 * @param baseTemperature
+	 *            temperature of the coldest chain
+	 * @param round
+	 */
+	private void exchangeStates(AnnealingChain[] ladder, double baseTemperature, int round) {
+		if (baseTemperature <= 0) {
+			return;
+		}
+		AnnealingChain colder;
+		AnnealingChain hotter;
+		SetCoveringProblem problem;
+		int cost;
+		double pExchange;
+		for (int i = round % 2; i + 1 < ladder.length; i += 2) {
+			colder = ladder[i];
+			hotter = ladder[i + 1];
+			pExchange = Math.exp((colder.cost - hotter.cost)
+					* (1.0 / (baseTemperature * colder.temperatureFactor)
+							- 1.0 / (baseTemperature * hotter.temperatureFactor)));
+			if (SimulatedAnnealingHelper.accept(pExchange, random)) {
+				problem = colder.problem;
+				cost = colder.cost;
+				colder.problem = hotter.problem;
+				colder.cost = hotter.cost;
+				hotter.problem = problem;
+				hotter.cost = cost;
+			}
+		}
+	}
+
+	/**
+	 * Records the current time as the time to target if the given cost of
+	 * the best solution found is the first one reaching the target cost. Can
+	 * be called from the threads of the parallel algorithms
+	 * 
+	 * @param cost
 	 */
-	private SetCoveringProblem generateNeighbourSA(SetCoveringProblem coverProblemSA,
-			SetCoveringProblem neighbourProblem) {
-		neighbourProblem.uncoverSet(
-				RandomUtils.getInstance(null).getRandomFromSet(coverProblemSA.getCoveredSets()));
-		switch (RandomUtils.getInstance(null).getRandomInt(3)) {
-		case 3:
-			neighbourProblem.ch1Solution();
-			break;
-		case 0:
-			neighbourProblem.ch2Solution();
-			break;
-		case 1:
-			neighbourProblem.ch3Solution();
-			break;
-		case 2:
-			neighbourProblem.ch4Solution();
-			break;
+	private void recordTarget(int cost) {
+		if (targetCost != null && cost <= targetCost) {
+			targetTime.compareAndSet(0L, System.currentTimeMillis());
 		}
+	}
+
+	/**
+	 * Transforms the given solution in a neighbour for the simulated annealing
+	 * algorithm, removing a random covered set and filling its gap by randomly
+	 * choosing one of the greedy criteria of the constructive heuristics
+	 * defined for the set covering problem. The gap is repaired locally, only
+	 * with the sets containing the elements left uncovered
+	 * 
+	 * @param neighbourProblem
+	 */
+	private void generateNeighbourSA(SetCoveringProblem neighbourProblem) {
+		neighbourProblem.uncoverSet(neighbourProblem.getRandomCoveredSet());
+		neighbourProblem.repair(
+				NEIGHBOUR_REPAIR_HEURISTICS[neighbourProblem.getRandom().getRandomInt(3)]);
 		neighbourProblem.redundancyElimination();
-		return neighbourProblem;
 	}
 
 	/**
-	 * Cooling function used in the Simulated Annealing solution
+	 * Cooling function used in the Simulated Annealing solution. Without a
+	 * time budget the temperature decreases linearly with the iterations.
+	 * With a time budget it decreases geometrically with the elapsed time,
+	 * from the initial temperature to the frozen one when the budget is over,
+	 * so the whole schedule fits in the budget whatever the speed of the
+	 * iterations on the instance
 	 * 
 	 * @param temperature
 	 * @param initTemp
 	 * @param loopCounter
+	 * @param elapsedTime
 	 * @return
 	 */
-	private Double cool(Double temperature, Double initTemp, Integer loopCounter) {
+	private double cool(double temperature, double initTemp, int loopCounter, long elapsedTime) {
+		if (duration != null) {
+			return initTemp * Math.pow(FINAL_TEMPERATURE_RATIO,
+					Math.min(1.0, (double) elapsedTime / duration));
+		}
 		return initTemp - cooling * loopCounter;
 		// return temperature * cooling;
 	}
@@ -390,24 +713,69 @@ public final class HeuristicSolver {
 	/**
 	 * Based on the current temperature and the amount of improvement failures
 	 * for the last runs decides whether terminate the simulated annealing
-	 * process or keep trying.
+	 * process or keep trying. It also stops when the time budget is exhausted
+	 * or the target cost is reached.
 	 * 
 	 * @param notImprovementCounter
+	 * @param currentMetropolisAcceptance
+	 * @param temperature
+	 * @param initialTemperature
+	 * @param currentCost
+	 * @param elapsedTime
 	 * @return
 	 */
-	private boolean terminateSimulatedAnnealing(Integer notImprovementCounter,
-			Double currentMetropolisAcceptance, Double temperature, Double initialTemperature) {
+	private boolean terminateSimulatedAnnealing(int notImprovementCounter,
+			double currentMetropolisAcceptance, double temperature, double initialTemperature,
+			int currentCost, long elapsedTime) {
 		if (temperature <= 0) {
 			return true;
 		}
 
+		if (targetCost != null && currentCost <= targetCost) {
+			return true;
+		}
+
+		if (duration != null && elapsedTime >= duration) {
+			return true;
+		}
+
 		if (notImprovementCounter > NOT_IMPROVEMENT_THRESHOLD
-				&& temperature <= initialTemperature * 0.003) {
+				&& temperature <= initialTemperature * FINAL_TEMPERATURE_RATIO) {
 			return true;
 		}
 
 		return currentMetropolisAcceptance < LOWER_THRESHOLD_METROPOLIS_ACCEPTANCE
-				&& temperature <= initialTemperature * 0.003;
+				&& temperature <= initialTemperature * FINAL_TEMPERATURE_RATIO;
+	}
+
+	/**
+	 * Chain of the parallel tempering: a temperature of the ladder, given as
+	 * a factor of the cooling schedule, with the state currently annealed at
+	 * it and the best solution found by the chain. Only the state (solution
+	 * and its cost) moves when chains are exchanged: the acceptance
+	 * statistics used by the termination condition belong to the temperature
+	 * of the chain, they describe how the search behaves at it whatever the
+	 * state it is working on
+	 * 
+	 * @author Fabio Navarrete
+	 *
+	 */
+	private static final class AnnealingChain {
+		private final double temperatureFactor;
+		private SetCoveringProblem problem;
+		private int cost;
+		private double metropolisAcceptance;
+		private int notImprovementCounter;
+		private SolutionSnapshot best;
+
+		private AnnealingChain(SetCoveringProblem problem, double temperatureFactor) {
+			this.temperatureFactor = temperatureFactor;
+			this.problem = problem;
+			this.cost = problem.getCost();
+			this.metropolisAcceptance = 1.0;
+			this.notImprovementCounter = 0;
+			this.best = SolutionSnapshot.of(problem);
+		}
 	}
 
 	/**
@@ -431,6 +799,13 @@ public final class HeuristicSolver {
 		private Integer numberOfAnts;
 		private Integer maxLoops;
 		private Long duration;
+		private Integer threads;
+		private Boolean asynchronous;
+		private Integer candidateListSize;
+		private Integer cacheSize;
+		private Integer chains;
+		private Integer swapInterval;
+		private Integer targetCost;
 
 		public HeuristicSolverBuilder constructiveHeuristic(
 				ConstructiveHeuristic constructiveHeuristic) {
@@ -504,10 +879,46 @@ public final class HeuristicSolver {
 			return this;
 		}
 
+		public HeuristicSolverBuilder threads(Integer threads) {
+			this.threads = threads;
+			return this;
+		}
+
+		public HeuristicSolverBuilder asynchronous(Boolean asynchronous) {
+			this.asynchronous = asynchronous;
+			return this;
+		}
+
+		public HeuristicSolverBuilder candidateListSize(Integer candidateListSize) {
+			this.candidateListSize = candidateListSize;
+			return this;
+		}
+
+		public HeuristicSolverBuilder cacheSize(Integer cacheSize) {
+			this.cacheSize = cacheSize;
+			return this;
+		}
+
+		public HeuristicSolverBuilder chains(Integer chains) {
+			this.chains = chains;
+			return this;
+		}
+
+		public HeuristicSolverBuilder swapInterval(Integer swapInterval) {
+			this.swapInterval = swapInterval;
+			return this;
+		}
+
+		public HeuristicSolverBuilder targetCost(Integer targetCost) {
+			this.targetCost = targetCost;
+			return this;
+		}
+
 		public HeuristicSolver build() {
 			return new HeuristicSolver(constructiveHeuristic, re, improvementType, instanceFile,
 					seed, stochasticLocalSearch, temperature, cooling, beta, epsilon, rho,
-					numberOfAnts, duration, maxLoops);
+					numberOfAnts, duration, maxLoops, threads, asynchronous, candidateListSize,
+					cacheSize, chains, swapInterval, targetCost);
 		}
 	}
 
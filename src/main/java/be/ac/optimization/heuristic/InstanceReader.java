@@ -0,0 +1,257 @@
+package be.ac.optimization.heuristic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Reader for the instance files of the set covering problem in the OR-Library
+ * format: number of elements (rows) and sets (columns), the cost of every
+ * set, and for every element the number of sets that contain it followed by
+ * their (1 based) identifiers. The file is memory mapped and the integers are
+ * parsed in place from its bytes, so no intermediate strings are created.
+ * 
+ * Instances can also be stored in a pre-compiled binary format (files with
+ * the .scpb extension) holding the arrays of the instance as they are kept in
+ * memory, so loading them is a bulk copy out of the mapped file:
+ * <ul>
+ * <li>header: magic number, format version, nElements, nSets and the number
+ * of non zero entries of the matrix</li>
+ * <li>cost of each set</li>
+ * <li>offsets and indices of the element to sets index</li>
+ * <li>offsets and indices of the set to elements index</li>
+ * </ul>
+ * All the values are little endian 32 bit integers.
+ *
+ * @author Fabio Navarrete
+ *
+ */
+public final class InstanceReader {
+	private final static Logger LOGGER = Logger.getLogger(InstanceReader.class);
+	public static final String BINARY_EXTENSION = ".scpb";
+	private static final int BINARY_MAGIC = 0x53435042;
+	private static final int BINARY_VERSION = 1;
+	private static final int BINARY_HEADER_INTS = 5;
+
+	private final MappedByteBuffer buffer;
+
+	private int nElements;
+	private int nSets;
+	private int[] costs;
+	private CompressedIndex elementSets;
+	private CompressedIndex setElements;
+
+	private InstanceReader(MappedByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Reads the instance stored in the given file. Files with the .scpb
+	 * extension are loaded as pre-compiled binary instances, any other one is
+	 * parsed as an OR-Library text file
+	 *
+	 * @param instanceFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static InstanceReader read(String instanceFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(instanceFile),
+				StandardOpenOption.READ)) {
+			InstanceReader reader = new InstanceReader(
+					channel.map(MapMode.READ_ONLY, 0, channel.size()));
+			if (instanceFile.endsWith(BINARY_EXTENSION)) {
+				reader.readBinaryInstance();
+			} else {
+				reader.readInstance();
+			}
+			return reader;
+		}
+	}
+
+	private void readInstance() throws IOException {
+		nElements = nextInt();
+		nSets = nextInt();
+		LOGGER.trace("Number of Elements for the instance: " + nElements);
+		LOGGER.trace("Number of Sets for the instance: " + nSets);
+		readCosts();
+		readRows();
+		setElements = elementSets.transpose(nSets);
+	}
+
+	/**
+	 * Loads the arrays of a pre-compiled binary instance
+	 *
+	 * @throws IOException
+	 */
+	private void readBinaryInstance() throws IOException {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		IntBuffer ints = buffer.asIntBuffer();
+		if (ints.remaining() < BINARY_HEADER_INTS || ints.get() != BINARY_MAGIC) {
+			throw new IOException("Not a binary set covering instance");
+		}
+		if (ints.get() != BINARY_VERSION) {
+			throw new IOException("Unsupported version of the binary instance format");
+		}
+		nElements = ints.get();
+		nSets = ints.get();
+		int nonZeros = ints.get();
+		if (ints.remaining() != nSets + (nElements + 1) + (nSets + 1) + 2 * nonZeros) {
+			throw new IOException("Corrupted binary instance file");
+		}
+		costs = new int[nSets];
+		ints.get(costs);
+		elementSets = readIndex(ints, nElements, nonZeros);
+		setElements = readIndex(ints, nSets, nonZeros);
+		LOGGER.trace("Binary instance read successfully");
+	}
+
+	private static CompressedIndex readIndex(IntBuffer ints, int size, int nonZeros) {
+		int[] offsets = new int[size + 1];
+		int[] indices = new int[nonZeros];
+		ints.get(offsets);
+		ints.get(indices);
+		return new CompressedIndex(offsets, indices);
+	}
+
+	/**
+	 * Stores the loaded instance in the pre-compiled binary format
+	 *
+	 * @param binaryFile
+	 * @throws IOException
+	 */
+	public void writeBinary(String binaryFile) throws IOException {
+		int nonZeros = elementSets.getNumValues();
+		ByteBuffer out = ByteBuffer.allocate(Integer.BYTES
+				* (BINARY_HEADER_INTS + nSets + nElements + 1 + nSets + 1 + 2 * nonZeros));
+		out.order(ByteOrder.LITTLE_ENDIAN);
+		IntBuffer ints = out.asIntBuffer();
+		ints.put(BINARY_MAGIC).put(BINARY_VERSION).put(nElements).put(nSets).put(nonZeros);
+		ints.put(costs);
+		ints.put(elementSets.getOffsets()).put(elementSets.getIndices());
+		ints.put(setElements.getOffsets()).put(setElements.getIndices());
+		try (FileChannel channel = FileChannel.open(Paths.get(binaryFile),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+		}
+		LOGGER.debug("Binary instance written to " + binaryFile);
+	}
+
+	/**
+	 * Reads the cost values of all the sets
+	 *
+	 * @throws IOException
+	 */
+	private void readCosts() throws IOException {
+		costs = new int[nSets];
+		for (int i = 0; i < nSets; i++) {
+			costs[i] = nextInt();
+		}
+		LOGGER.trace("costs read successfully");
+	}
+
+	/**
+	 * Reads the groups of sets containing each of the elements, sorting each
+	 * group in ascending order. A set listed more than once for the same
+	 * element is kept only once, otherwise it would be counted several times
+	 * in the coverage of the element
+	 *
+	 * @throws IOException
+	 */
+	private void readRows() throws IOException {
+		int[] offsets = new int[nElements + 1];
+		int[] indices = new int[Math.max(nElements, 16)];
+		int numSets;
+		int end;
+		for (int row = 0; row < nElements; row++) {
+			numSets = nextInt();
+			if (offsets[row] + numSets > indices.length) {
+				indices = Arrays.copyOf(indices,
+						Math.max(indices.length * 2, offsets[row] + numSets));
+			}
+			for (int i = 0; i < numSets; i++) {
+				indices[offsets[row] + i] = nextInt() - 1;
+			}
+			Arrays.sort(indices, offsets[row], offsets[row] + numSets);
+			end = offsets[row];
+			for (int i = offsets[row]; i < offsets[row] + numSets; i++) {
+				if (i == offsets[row] || indices[i] != indices[end - 1]) {
+					indices[end++] = indices[i];
+				}
+			}
+			offsets[row + 1] = end;
+		}
+		elementSets = new CompressedIndex(offsets, Arrays.copyOf(indices, offsets[nElements]));
+		LOGGER.trace("Elements read successfully");
+	}
+
+	/**
+	 * Parses the next non negative integer of the file skipping any separator
+	 * before it
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private int nextInt() throws IOException {
+		byte b;
+		do {
+			if (!buffer.hasRemaining()) {
+				throw new IOException("Unexpected end of the instance file");
+			}
+			b = buffer.get();
+		} while (b < '0' || b > '9');
+		int value = 0;
+		while (true) {
+			value = value * 10 + (b - '0');
+			if (!buffer.hasRemaining()) {
+				return value;
+			}
+			b = buffer.get();
+			if (b < '0' || b > '9') {
+				return value;
+			}
+		}
+	}
+
+	public int getnElements() {
+		return nElements;
+	}
+
+	public int getnSets() {
+		return nSets;
+	}
+
+	public int[] getCosts() {
+		return costs;
+	}
+
+	/**
+	 * Index from each element (row) to the sets that contain it
+	 *
+	 * @return
+	 */
+	public CompressedIndex getElementSets() {
+		return elementSets;
+	}
+
+	/**
+	 * Index from each set (column) to the elements it contains
+	 *
+	 * @return
+	 */
+	public CompressedIndex getSetElements() {
+		return setElements;
+	}
+
+}
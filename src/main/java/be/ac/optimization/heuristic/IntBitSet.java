@@ -0,0 +1,281 @@
+package be.ac.optimization.heuristic;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of integers in the range [0, capacity) backed by a dense array of long
+ * words. The cardinality is tracked on every change so size and emptiness
+ * checks do not need to scan the words. Used to keep the coverage state of
+ * the rows and columns of the set covering problem without boxing nor hashing
+ * 
+ * The values are also kept in an array in no particular order, together
+ * with the position of each value in it (sparse set), so a value can be
+ * accessed by position, e.g. to pick a random one, in constant time. A
+ * removed value is replaced by the last one of the array
+ *
+ * @author Fabio Navarrete
+ *
+ */
+public final class IntBitSet extends AbstractSet<Integer> implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 4412163817165339271L;
+
+	private static final int ADDRESS_BITS_PER_WORD = 6;
+
+	/**
+	 * @serial
+	 */
+	private final long[] words;
+	/**
+	 * Upper bound (exclusive) for the values that can be stored in the set
+	 *
+	 * @serial
+	 */
+	private final int capacity;
+	/**
+	 * Number of values currently contained in the set
+	 *
+	 * @serial
+	 */
+	private int cardinality;
+	/**
+	 * Values of the set, the first cardinality positions are used
+	 *
+	 * @serial
+	 */
+	private final int[] dense;
+	/**
+	 * Position of each value of the set in the dense array
+	 *
+	 * @serial
+	 */
+	private final int[] position;
+
+	public IntBitSet(int capacity) {
+		this.capacity = capacity;
+		this.words = new long[wordIndex(capacity - 1) + 1];
+		this.cardinality = 0;
+		this.dense = new int[capacity];
+		this.position = new int[capacity];
+	}
+
+	/**
+	 * Copy Constructor
+	 *
+	 * @param other
+	 */
+	public IntBitSet(IntBitSet other) {
+		this.capacity = other.capacity;
+		this.words = other.words.clone();
+		this.cardinality = other.cardinality;
+		this.dense = other.dense.clone();
+		this.position = other.position.clone();
+	}
+
+	private static int wordIndex(int value) {
+		return value >> ADDRESS_BITS_PER_WORD;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Adds all the values in the range [0, capacity) to the set
+	 */
+	public void fill() {
+		if (words.length == 0) {
+			return;
+		}
+		for (int w = 0; w < words.length - 1; w++) {
+			words[w] = -1L;
+		}
+		words[words.length - 1] = -1L >>> (words.length * Long.SIZE - capacity);
+		for (int v = 0; v < capacity; v++) {
+			dense[v] = v;
+			position[v] = v;
+		}
+		cardinality = capacity;
+	}
+
+	public boolean contains(int value) {
+		return (words[wordIndex(value)] & (1L << value)) != 0;
+	}
+
+	/**
+	 * Adds the given value to the set. Returns true if the value was not
+	 * already contained in the set
+	 *
+	 * @param value
+	 * @return
+	 */
+	public boolean add(int value) {
+		int w = wordIndex(value);
+		long mask = 1L << value;
+		if ((words[w] & mask) != 0) {
+			return false;
+		}
+		words[w] |= mask;
+		position[value] = cardinality;
+		dense[cardinality++] = value;
+		return true;
+	}
+
+	/**
+	 * Removes the given value from the set. Returns true if the value was
+	 * contained in the set
+	 *
+	 * @param value
+	 * @return
+	 */
+	public boolean remove(int value) {
+		int w = wordIndex(value);
+		long mask = 1L << value;
+		if ((words[w] & mask) == 0) {
+			return false;
+		}
+		words[w] &= ~mask;
+		int last = dense[--cardinality];
+		dense[position[value]] = last;
+		position[last] = position[value];
+		return true;
+	}
+
+	/**
+	 * Value stored at the given position, from 0 to size() - 1, of the
+	 * unordered array of values. The positions change when values are removed
+	 *
+	 * @param index
+	 * @return
+	 */
+	public int get(int index) {
+		return dense[index];
+	}
+
+	/**
+	 * Returns the first value contained in the set that is greater or equal
+	 * than the given one, -1 if there is none
+	 *
+	 * @param from
+	 * @return
+	 */
+	public int nextSetBit(int from) {
+		if (from >= capacity) {
+			return -1;
+		}
+		int w = wordIndex(from);
+		long word = words[w] & (-1L << from);
+		while (true) {
+			if (word != 0) {
+				return (w << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+			}
+			if (++w == words.length) {
+				return -1;
+			}
+			word = words[w];
+		}
+	}
+
+	/**
+	 * Values contained in the set in ascending order
+	 *
+	 * @return
+	 */
+	public int[] toIntArray() {
+		int[] values = new int[cardinality];
+		int i = 0;
+		for (int v = nextSetBit(0); v >= 0; v = nextSetBit(v + 1)) {
+			values[i++] = v;
+		}
+		return values;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Integer)) {
+			return false;
+		}
+		int value = (Integer) o;
+		return value >= 0 && value < capacity && contains(value);
+	}
+
+	@Override
+	public boolean add(Integer value) {
+		return add(value.intValue());
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof Integer)) {
+			return false;
+		}
+		int value = (Integer) o;
+		return value >= 0 && value < capacity && remove(value);
+	}
+
+	/**
+	 * Removes all the values. The dense and position arrays are not reset:
+	 * only the first cardinality positions of the dense array are meaningful,
+	 * and the position of a value is only read while the value is in the set,
+	 * both of them written again by add
+	 */
+	@Override
+	public void clear() {
+		for (int w = 0; w < words.length; w++) {
+			words[w] = 0L;
+		}
+		cardinality = 0;
+	}
+
+	@Override
+	public int size() {
+		return cardinality;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	/**
+	 * Iterates the values of the set in ascending order
+	 */
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			private int next = nextSetBit(0);
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public Integer next() {
+				if (next < 0) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = nextSetBit(next + 1);
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				IntBitSet.this.remove(last);
+				last = -1;
+			}
+		};
+	}
+
+}
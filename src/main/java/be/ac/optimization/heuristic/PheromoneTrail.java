@@ -0,0 +1,161 @@
+package be.ac.optimization.heuristic;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Pheromone of the sets for the MAX-MIN ant system. The evaporation is kept
+ * as a global scale factor instead of being applied to every set: the
+ * pheromone of a set is its stored value times the scale, bounded below by
+ * the minimum pheromone in force at the last evaporation. As max(rho * max(x,
+ * min), min) = max(rho * x, min), this gives the same values as evaporating
+ * and clamping every set on each iteration, while an iteration only costs
+ * the update of the sets that get a deposit. All the sets are materialised
+ * only when the limits change (new best solution) or the scale gets too small.
+ * 
+ * The trail can be read by the ants while it is being updated (asynchronous
+ * colony): the updates are serialised by a lock and the reads are optimistic,
+ * they are only retried, holding the lock, if an update happened meanwhile.
+ * Every update increases the version of the trail, so the readers can tell
+ * whether the values they derived from it are still current
+ *
+ * @author Fabio Navarrete
+ *
+ */
+final class PheromoneTrail {
+	/**
+	 * Scale below which the stored values are materialised, to keep them far
+	 * from underflowing
+	 */
+	private static final double MIN_SCALE = 1e-100;
+
+	private final double[] values;
+	private double scale;
+	/**
+	 * Lower bound of the pheromone, minimum pheromone when the last
+	 * evaporation was done, or none since the last materialisation
+	 */
+	private double floor;
+	private double minPheromone;
+	private double maxPheromone;
+	/**
+	 * Number of updates done on the trail
+	 */
+	private volatile long version;
+	private final StampedLock lock = new StampedLock();
+
+	PheromoneTrail(int nSets, double initialValue) {
+		values = new double[nSets];
+		Arrays.fill(values, initialValue);
+		scale = 1.0;
+		floor = 0.0;
+		minPheromone = 0.0;
+		maxPheromone = initialValue;
+	}
+
+	/**
+	 * Current pheromone of the given set
+	 *
+	 * @param set
+	 * @return
+	 */
+	double get(int set) {
+		long stamp = lock.tryOptimisticRead();
+		double value = currentValue(set);
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				value = currentValue(set);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return value;
+	}
+
+	private double currentValue(int set) {
+		return Math.max(values[set] * scale, floor);
+	}
+
+	/**
+	 * Version of the trail, changed by every update. Read it before the
+	 * pheromone it is associated with: if an update happens between both
+	 * reads the value is newer than the version, never older
+	 *
+	 * @return
+	 */
+	long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Evaporates the pheromone of all the sets: multiplies it by rho, without
+	 * letting it go below the minimum pheromone
+	 *
+	 * @param rho
+	 */
+	void evaporate(double rho) {
+		long stamp = lock.writeLock();
+		try {
+			scale *= rho;
+			floor = minPheromone;
+			if (scale < MIN_SCALE) {
+				materialise();
+			}
+			version++;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Sets the pheromone of the given set, clamped between the minimum and
+	 * maximum pheromone
+	 *
+	 * @param set
+	 * @param value
+	 */
+	void set(int set, double value) {
+		long stamp = lock.writeLock();
+		try {
+			values[set] = Math.min(Math.max(value, minPheromone), maxPheromone) / scale;
+			version++;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Changes the limits of the pheromone. Values out of the new limits are
+	 * kept until they are evaporated or updated, as if they were stored one by
+	 * one
+	 *
+	 * @param minPheromone
+	 * @param maxPheromone
+	 */
+	void setLimits(double minPheromone, double maxPheromone) {
+		long stamp = lock.writeLock();
+		try {
+			materialise();
+			this.minPheromone = minPheromone;
+			this.maxPheromone = maxPheromone;
+			version++;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Stores the current pheromone of every set, leaving a unit scale and no
+	 * lower bound, which the stored values already respect. Otherwise a lower
+	 * minimum set afterwards would not apply until the next evaporation. To
+	 * be called holding the write lock
+	 */
+	private void materialise() {
+		for (int s = 0; s < values.length; s++) {
+			values[s] = currentValue(s);
+		}
+		scale = 1.0;
+		floor = 0.0;
+	}
+}
@@ -0,0 +1,354 @@
+package be.ac.optimization.heuristic;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntToLongFunction;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Data of an instance of the set covering problem: costs of the sets and the
+ * incidence between elements and sets, plus the static orders of the sets
+ * used by the greedy heuristics. It is not modified once loaded, so a single
+ * instance can be shared by any number of solutions (see
+ * {@link SetCoveringProblem}), also among threads
+ *
+ * @author Fabio Navarrete
+ *
+ */
+public final class ProblemInstance implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 3183316250563620413L;
+
+	private final static Logger LOGGER = Logger.getLogger(ProblemInstance.class);
+	private static final long ZOBRIST_SEED = 0x5DEECE66DL;
+
+	/**
+	 * Path to the instance in the file system
+	 *
+	 * @serial
+	 */
+	private final String instanceFile;
+	/**
+	 * Number of sets in the problem. Aka: Number of columns
+	 *
+	 * @serial
+	 */
+	private int nSets;
+	/**
+	 * Number of elements in the problem. Aka: Number of rows
+	 *
+	 * @serial
+	 */
+	private int nElements;
+	/**
+	 * Cost of each one of the sets
+	 *
+	 * @serial
+	 */
+	private int[] costs;
+	/**
+	 * For each element (row) the ascending list of the sets that contain it
+	 *
+	 * @serial
+	 */
+	private CompressedIndex elementSets;
+	/**
+	 * For each set (column) the ascending list of the elements it contains
+	 *
+	 * @serial
+	 */
+	private CompressedIndex setElements;
+	/**
+	 * Sets sorted by the static greedy value of CH2 (cost), built on first use
+	 */
+	private transient SortedSets costOrder;
+	/**
+	 * Sets sorted by the static greedy value of CH3 (cost divided by number of
+	 * elements), built on first use
+	 */
+	private transient SortedSets costElemsRatioOrder;
+	/**
+	 * For each element the sets that contain it in the static order of CH3,
+	 * built on first use. The blocks are not in ascending order, so it can not
+	 * be searched with {@link CompressedIndex#contains(int, int)}
+	 */
+	private transient CompressedIndex rankedElementSets;
+	/**
+	 * Random key of each set to compute Zobrist hashes of the solutions,
+	 * built on first use
+	 */
+	private transient long[] zobristKeys;
+
+	public ProblemInstance(String instanceFile) {
+		this.instanceFile = instanceFile;
+		readInstance();
+	}
+
+	/**
+	 * Reads the instance values using the instance file location. Fails if
+	 * the file can not be read, there is nothing to solve without it
+	 */
+	private final void readInstance() {
+		try {
+			InstanceReader reader = InstanceReader.read(instanceFile);
+			nElements = reader.getnElements();
+			nSets = reader.getnSets();
+			costs = reader.getCosts();
+			elementSets = reader.getElementSets();
+			setElements = reader.getSetElements();
+			LOGGER.debug("Load of instance done successfully");
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read the instance " + instanceFile, e);
+		}
+	}
+
+	public String getInstanceFile() {
+		return instanceFile;
+	}
+
+	public int getnSets() {
+		return nSets;
+	}
+
+	public int getnElements() {
+		return nElements;
+	}
+
+	public int getSetCost(int set) {
+		return costs[set];
+	}
+
+	/**
+	 * Cost of every set, indexed by set. Not to be modified
+	 *
+	 * @return
+	 */
+	int[] getCosts() {
+		return costs;
+	}
+
+	/**
+	 * Number of elements contained in the given set
+	 *
+	 * @param set
+	 * @return
+	 */
+	public int getSetSize(int set) {
+		return setElements.count(set);
+	}
+
+	/**
+	 * Index from each element (row) to the sets that contain it
+	 *
+	 * @return
+	 */
+	public CompressedIndex getElementSets() {
+		return elementSets;
+	}
+
+	/**
+	 * Index from each set (column) to the elements it contains
+	 *
+	 * @return
+	 */
+	public CompressedIndex getSetElements() {
+		return setElements;
+	}
+
+	/**
+	 * Index from each element (row) to the sets that contain it, each block
+	 * sorted by ascending cost divided by number of elements of the sets (same
+	 * order as CH3). The first sets of a block are the candidate list of the
+	 * element
+	 *
+	 * @return
+	 */
+	public synchronized CompressedIndex getRankedElementSets() {
+		if (rankedElementSets == null) {
+			int[] offsets = elementSets.getOffsets();
+			int[] indices = new int[elementSets.getNumValues()];
+			int[] next = Arrays.copyOf(offsets, nElements);
+			// Visiting the sets in order appends them in order to the blocks
+			// of their elements
+			for (int set : getCostElemsRatioOrder().sets) {
+				for (int k = setElements.getStart(set); k < setElements.getEnd(set); k++) {
+					indices[next[setElements.get(k)]++] = set;
+				}
+			}
+			rankedElementSets = new CompressedIndex(offsets, indices);
+		}
+		return rankedElementSets;
+	}
+
+	/**
+	 * Random 64 bit key of each set. The Zobrist hash of a solution is the
+	 * exclusive or of the keys of its sets, so it can be updated with each
+	 * set covered or uncovered. The keys only depend on the number of sets
+	 *
+	 * @return
+	 */
+	public synchronized long[] getZobristKeys() {
+		if (zobristKeys == null) {
+			zobristKeys = new SplittableRandom(ZOBRIST_SEED).longs(nSets).toArray();
+		}
+		return zobristKeys;
+	}
+
+	/**
+	 * Static order of the sets for CH2, built on first use
+	 *
+	 * @return
+	 */
+	synchronized SortedSets getCostOrder() {
+		if (costOrder == null) {
+			costOrder = new SortedSets(set -> costs[set]);
+		}
+		return costOrder;
+	}
+
+	/**
+	 * Static order of the sets for CH3, built on first use
+	 *
+	 * @return
+	 */
+	synchronized SortedSets getCostElemsRatioOrder() {
+		if (costElemsRatioOrder == null) {
+			costElemsRatioOrder = new SortedSets(set -> sortableBits(costElemsRatio(set)));
+		}
+		return costElemsRatioOrder;
+	}
+
+	/**
+	 * Greedy value of a set used in CH3: its cost divided by its number of
+	 * elements
+	 *
+	 * @param set
+	 * @return
+	 */
+	private double costElemsRatio(int set) {
+		return (double) costs[set] / setElements.count(set);
+	}
+
+	/**
+	 * Bits of a double turned into a long with the same order as
+	 * {@link Double#compare(double, double)}
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static long sortableBits(double value) {
+		long bits = Double.doubleToLongBits(value);
+		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+	}
+
+	/**
+	 * Number of bits needed to write the given non negative value
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static int bitLength(long value) {
+		return 64 - Long.numberOfLeadingZeros(value);
+	}
+
+	/**
+	 * Replaces each key by its position among the distinct values of the keys
+	 *
+	 * @param keys
+	 * @return
+	 */
+	private static int[] denseRanks(long[] keys) {
+		long[] distinct = keys.clone();
+		Arrays.sort(distinct);
+		int numDistinct = 0;
+		for (int i = 0; i < distinct.length; i++) {
+			if (i == 0 || distinct[i] != distinct[numDistinct - 1]) {
+				distinct[numDistinct++] = distinct[i];
+			}
+		}
+		int[] ranks = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			ranks[i] = Arrays.binarySearch(distinct, 0, numDistinct, keys[i]);
+		}
+		return ranks;
+	}
+
+	/**
+	 * Static order of the sets for a greedy heuristic: ascending greedy value,
+	 * then descending number of elements and finally ascending identifier.
+	 * For each position keeps the end of the group of sets tied with it (same
+	 * greedy value and number of elements)
+	 *
+	 * @author Fabio Navarrete
+	 *
+	 */
+	final class SortedSets {
+		final int[] sets;
+		final int[] groupEnd;
+
+		/**
+		 * Sorts the sets with primitive keys packing the greedy value, the
+		 * number of elements (descending) and the set identifier. Greedy
+		 * values that do not fit in the remaining bits, as the ratios of CH3,
+		 * are first reduced to their rank among the sets. If even then the
+		 * three parts do not fit, the rank of the tie group of each set is
+		 * computed and packed with the set identifier instead
+		 *
+		 * @param greedyValue
+		 *            key of each set with the order of its greedy value
+		 */
+		private SortedSets(IntToLongFunction greedyValue) {
+			int setBits = bitLength(nSets - 1);
+			int sizeBits = bitLength(nElements);
+			long[] keys = new long[nSets];
+			long maxValue = 0;
+			boolean negative = false;
+			for (int s = 0; s < nSets; s++) {
+				keys[s] = greedyValue.applyAsLong(s);
+				maxValue = Math.max(maxValue, keys[s]);
+				negative |= keys[s] < 0;
+			}
+			if (negative || bitLength(maxValue) + sizeBits + setBits > 63) {
+				int[] rank = denseRanks(keys);
+				for (int s = 0; s < nSets; s++) {
+					keys[s] = rank[s];
+				}
+				maxValue = nSets - 1;
+			}
+			int groupShift;
+			if (bitLength(maxValue) + sizeBits + setBits <= 63) {
+				groupShift = setBits;
+				for (int s = 0; s < nSets; s++) {
+					keys[s] = (keys[s] << sizeBits | nElements - setElements.count(s)) << setBits
+							| s;
+				}
+			} else {
+				for (int s = 0; s < nSets; s++) {
+					keys[s] = keys[s] << 32 | nElements - setElements.count(s);
+				}
+				int[] rank = denseRanks(keys);
+				groupShift = 32;
+				for (int s = 0; s < nSets; s++) {
+					keys[s] = (long) rank[s] << 32 | s;
+				}
+			}
+			Arrays.sort(keys);
+			long setMask = (1L << groupShift) - 1;
+			sets = new int[nSets];
+			groupEnd = new int[nSets];
+			for (int i = nSets - 1; i >= 0; i--) {
+				sets[i] = (int) (keys[i] & setMask);
+				groupEnd[i] = i + 1 < nSets && keys[i] >>> groupShift == keys[i + 1] >>> groupShift
+						? groupEnd[i + 1] : i + 1;
+			}
+		}
+	}
+
+}
@@ -1,22 +1,36 @@
 package be.ac.optimization.heuristic;
 
-import java.util.Random;
-import java.util.Set;
+import java.util.SplittableRandom;
 
+/**
+ * Source of random numbers for the algorithms. Each worker (solver, ant,
+ * annealing chain) gets its own instance, either created from the seed or
+ * split from another one, so there is no contention among threads and the
+ * results of a run only depend on the seed and the way the streams are split
+ * 
+ * @author Fabio Navarrete
+ *
+ */
 public class RandomUtils {
 
-	private static RandomUtils instance = null;
-	private final Random random;
+	private final SplittableRandom random;
 
-	private RandomUtils(Integer seed) {
-		random = new Random(seed);
+	public RandomUtils(Integer seed) {
+		random = new SplittableRandom(seed);
 	}
 
-	public static RandomUtils getInstance(Integer seed) {
-		if (instance == null && seed != null) {
-			instance = new RandomUtils(seed);
-		}
-		return instance;
+	private RandomUtils(SplittableRandom random) {
+		this.random = random;
+	}
+
+	/**
+	 * Returns a new independent source of random numbers derived from this
+	 * one. Not thread safe, the streams must be split by a single thread
+	 * 
+	 * @return
+	 */
+	public RandomUtils split() {
+		return new RandomUtils(random.split());
 	}
 
 	/**
@@ -24,7 +38,7 @@ public class RandomUtils {
 	 * 
 	 * @return
 	 */
-	public Integer getRandomInt() {
+	public int getRandomInt() {
 		return random.nextInt();
 	}
 
@@ -34,9 +48,8 @@ public class RandomUtils {
 	 * @param upperBound
 	 * @return
 	 */
-	public Integer getRandomInt(Integer upperBound) {
-		Integer aux = random.nextInt(upperBound);
-		return aux;
+	public int getRandomInt(int upperBound) {
+		return random.nextInt(upperBound);
 	}
 
 	/**
@@ -44,24 +57,18 @@ public class RandomUtils {
 	 * 
 	 * @return
 	 */
-	public Double getRandomDouble() {
+	public double getRandomDouble() {
 		return random.nextDouble();
 	}
 
-	public Random getRandom() {
-		return random;
-	}
-
-	public <T> T getRandomFromSet(Set<T> set) {
-		int rndPos = random.nextInt(set.size());
-		int i = 0;
-		for (T obj : set) {
-			if (i == rndPos) {
-				return obj;
-			}
-			i++;
-		}
-		return null;
+	/**
+	 * Returns a random value of the given set in constant time
+	 * 
+	 * @param set
+	 * @return
+	 */
+	public int getRandomFromSet(IntBitSet set) {
+		return set.get(random.nextInt(set.size()));
 	}
 
 }
@@ -1,28 +1,16 @@
 package be.ac.optimization.heuristic;
 
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.Serializable;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.DoubleSummaryStatistics;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.IntSummaryStatistics;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.apache.commons.collections.ListUtils;
-import org.apache.log4j.Logger;
-
 /**
- * Class to represent the set covering problem
+ * Solution state of the set covering problem: the sets currently covered and
+ * the coverage of the elements. The data of the instance is kept in a
+ * {@link ProblemInstance} shared by all the states created for it, so copying
+ * a state only copies its bit sets and counters
  * 
  * @author Fabio Navarrete
  *
@@ -34,95 +22,155 @@ public final class SetCoveringProblem implements Serializable {
 	 */
 	private static final long serialVersionUID = -6650501831301162392L;
 
-	private final static Logger LOGGER = Logger.getLogger(SetCoveringProblem.class);
-
+	/**
+	 * Instance of the problem this state is a solution for
+	 * 
+	 * @serial
+	 */
+	private final ProblemInstance instance;
 	/**
 	 * Number of sets in the problem. Aka: Number of columns
 	 * 
 	 * @serial
 	 */
-	private Integer nSets = new Integer(0);
+	private final int nSets;
 	/**
 	 * Number of elements in the problem
 	 * 
 	 * @serial
 	 */
-	private Integer nElements = new Integer(0);
+	private final int nElements;
 	/**
-	 * Path to the instance in the file system
+	 * Shortcuts to the data of the instance
 	 * 
 	 * @serial
 	 */
-	private final String instanceFile;
+	private final int[] costs;
+	private final CompressedIndex elementSets;
+	private final CompressedIndex setElements;
 
 	/**
-	 * Key with the identifier of the element mapping to a list of the subsets
-	 * that contain the element in the key.
+	 * List of covered/uncovered elements for the optimization process. Elements
+	 * are also known as rows
 	 * 
 	 * @serial
 	 */
-	private final HashMap<Integer, ArrayList<Integer>> elementSetMap;
+	private final IntBitSet coveredElements;
+	private final IntBitSet uncoveredElements;
 	/**
-	 * Key with the identifier of the set mapping to a list of the elements
-	 * contained in the given set and their total cost.
+	 * List of used/unused sets for the solution. Elements are also known as
+	 * columns in the implementation
 	 * 
 	 * @serial
 	 */
-	private final HashMap<Integer, Subset> setElementMap;
-
+	private final IntBitSet coveredSets;
+	private final IntBitSet uncoveredSets;
 	/**
-	 * Matrix to trace the coverage according to the rows read from the instance
-	 * text file
+	 * Number of currently covered sets containing each one of the elements. An
+	 * element is covered as long as its counter is greater than zero
 	 * 
 	 * @serial
 	 */
-	private boolean[][] map;
-
+	private final int[] coverCount;
 	/**
-	 * List of covered/uncovered elements for the optimization process. Elements
-	 * are also known as rows
+	 * Total cost of the covered sets, updated with every set covered or
+	 * uncovered
 	 * 
 	 * @serial
 	 */
-	private HashSet<Integer> coveredElements;
-	private HashSet<Integer> uncoveredElements;
+	private int coveredCost;
 	/**
-	 * List of used/unused sets for the solution. Elements are also known as
-	 * columns in the implementation
+	 * Number of uncovered elements contained in each one of the sets, i.e. the
+	 * number of new elements the set would cover. Only kept up to date while
+	 * the lazy greedy constructive heuristic runs, working memory not part of
+	 * the state of the problem
+	 */
+	private transient int[] uncoveredInSet;
+	/**
+	 * Heap used by the lazy greedy constructive heuristic
+	 */
+	private transient SetPriorityQueue greedyQueue;
+	/**
+	 * Buffer to collect the tied candidates of the greedy heuristics and the
+	 * available sets of the random one
+	 */
+	private transient int[] tiedSets;
+	/**
+	 * Buffer to sort the covered sets in the redundancy elimination
+	 */
+	private transient long[] redundancyOrder;
+	/**
+	 * Last repair step in which each set was visited, to visit every
+	 * candidate set only once per step
+	 */
+	private transient int[] repairVisited;
+	private transient int repairStep;
+	/**
+	 * Source of random numbers of the heuristics run on this solution. Shared
+	 * with its copies, so a solution and its copies must be used by the same
+	 * thread
+	 */
+	private transient RandomUtils random;
+	/**
+	 * Journal of the moves done on the solution since the last call to
+	 * {@link #beginMoves()}, used to undo them. Each entry holds the set in
+	 * the high bits and the kind of move in the two lowest ones
+	 */
+	private transient int[] journal;
+	private transient int journalSize;
+	private transient boolean journaling;
+
+	private static final int MOVE_COVER = 0;
+	private static final int MOVE_UNCOVER = 1;
+	private static final int MOVE_UNCOVER_INCOMPLETE = 2;
+	private static final int MOVE_BITS = 2;
+
+	public SetCoveringProblem(String instanceFile, RandomUtils random) {
+		this(new ProblemInstance(instanceFile), random);
+	}
+
+	/**
+	 * Creates an empty solution (no set covered) for the given instance
 	 * 
-	 * @serial
+	 * @param instance
+	 * @param random
+	 */
+	public SetCoveringProblem(ProblemInstance instance, RandomUtils random) {
+		this.instance = instance;
+		this.random = random;
+		this.nSets = instance.getnSets();
+		this.nElements = instance.getnElements();
+		this.costs = instance.getCosts();
+		this.elementSets = instance.getElementSets();
+		this.setElements = instance.getSetElements();
+		coveredElements = new IntBitSet(nElements);
+		uncoveredElements = new IntBitSet(nElements);
+		coverCount = new int[nElements];
+		coveredSets = new IntBitSet(nSets);
+		uncoveredSets = new IntBitSet(nSets);
+		initCoveredLists();
+	}
+
+	/**
+	 * Copy Constructor. The copy shares the instance with the original one and
+	 * only duplicates the state of the solution
+	 * 
+	 * @param other
 	 */
-	private HashSet<Integer> coveredSets;
-	private HashSet<Integer> uncoveredSets;
-
-	public SetCoveringProblem(String instanceFile) {
-		this.setElementMap = new HashMap<>();
-		this.elementSetMap = new HashMap<>();
-		this.instanceFile = instanceFile;
-		readInstance();
-	}
-
-	/**
-	 * Reads the instance values using the instance file location
-	 */
-	private final void readInstance() {
-		BufferedReader reader;
-		try {
-			reader = Files.newBufferedReader(Paths.get(instanceFile), Charset.defaultCharset());
-			String line = null;
-			String[] splitLine = reader.readLine().trim().split(" ");
-			nElements = Integer.valueOf(splitLine[0]);
-			nSets = Integer.valueOf(splitLine[1]);
-			LOGGER.trace("Number of Elements for the instance: " + nElements);
-			LOGGER.trace("Number of Sets for the instance: " + nSets);
-			line = readCosts(reader);
-			readRows(reader, line);
-			countAndLoadElementsPerSet();
-			initCoveredLists();
-			LOGGER.debug("Load of instance done successfully");
-		} catch (IOException e) {
-			LOGGER.error(e);
-		}
+	public SetCoveringProblem(SetCoveringProblem other) {
+		this.instance = other.instance;
+		this.random = other.random;
+		this.nSets = other.nSets;
+		this.nElements = other.nElements;
+		this.costs = other.costs;
+		this.elementSets = other.elementSets;
+		this.setElements = other.setElements;
+		coveredElements = new IntBitSet(other.coveredElements);
+		uncoveredElements = new IntBitSet(other.uncoveredElements);
+		coverCount = other.coverCount.clone();
+		coveredCost = other.coveredCost;
+		coveredSets = new IntBitSet(other.coveredSets);
+		uncoveredSets = new IntBitSet(other.uncoveredSets);
 	}
 
 	/**
@@ -139,11 +187,10 @@ public final class SetCoveringProblem implements Serializable {
 	 * currently covered and uncovered elements
 	 */
 	private void initCoveredElements() {
-		coveredElements = new HashSet<>();
-		uncoveredElements = new HashSet<>();
-		for (int i = 0; i < nElements; i++) {
-			uncoveredElements.add(i);
-		}
+		coveredElements.clear();
+		uncoveredElements.fill();
+		Arrays.fill(coverCount, 0);
+		coveredCost = 0;
 	}
 
 	/**
@@ -151,209 +198,160 @@ public final class SetCoveringProblem implements Serializable {
 	 * currently covered and uncovered sets
 	 */
 	private void initCoveredSets() {
-		coveredSets = new HashSet<>();
-		uncoveredSets = new HashSet<>();
-		for (int i = 0; i < nSets; i++) {
-			uncoveredSets.add(i);
-		}
-
+		coveredSets.clear();
+		uncoveredSets.fill();
 	}
 
-	/**
-	 * Helper method used to populate the elements contained in a set and count
-	 * the elements in a set using the information loaded for the sets (coming
-	 * from the rows in the input file) and the map (matrix) created to analyze
-	 * the problem
-	 */
-	private void countAndLoadElementsPerSet() {
-		ArrayList<Integer> tmpColValues;
-		for (int j = 0; j < nSets; j++) {
-			tmpColValues = new ArrayList<>();
-			for (int i = 0; i < nElements; i++) {
-				if (map[i][j]) {
-					tmpColValues.add(i);
-				}
-			}
-			setElementMap.get(j).setElems(tmpColValues);
-			setElementMap.get(j).setNumElems(tmpColValues.size());
-			// countNElements.add(count);
-		}
+	public ProblemInstance getInstance() {
+		return instance;
 	}
 
-	/**
-	 * Helper function used to read the row values from the instance files
-	 * 
-	 * @param reader
-	 * @param line
-	 * @throws IOException
-	 */
-	private void readRows(BufferedReader reader, String line) throws IOException {
-		String[] splitLine;
-		int i;
-		map = new boolean[nElements][nSets];
-		int numElements = Integer.valueOf(line.trim()).intValue();
-		ArrayList<Integer> tmpRowValues;
-		// Read rows groups
-		while ((line = reader.readLine()) != null) {
-			tmpRowValues = new ArrayList<>();
-			i = 0;
-			do {
-				splitLine = line.trim().split(" ");
-				tmpRowValues.addAll(Arrays.asList(splitLine).stream()
-						.map(s -> Integer.parseInt(s) - 1).collect(Collectors.toList()));
-				i += splitLine.length;
-			} while ((line = reader.readLine()) != null && i < numElements);
-			for (Integer val : tmpRowValues) {
-				map[elementSetMap.size()][val] = true;
-			}
-			elementSetMap.put(elementSetMap.size(), tmpRowValues);
-			if (line != null) {
-				numElements = Integer.valueOf(line.trim()).intValue();
-			}
-		}
-		LOGGER.trace("Elements read successfully");
+	public RandomUtils getRandom() {
+		return random;
 	}
 
-	/**
-	 * Helper function used to read the cost values from the instance file
-	 * 
-	 * @param reader
-	 * @return
-	 * @throws IOException
-	 */
-	private String readCosts(BufferedReader reader) throws IOException {
-		String line;
-		String[] splitLine;
-		int i = 0;
-		// Initializes only the costs for the sets.
-		while ((line = reader.readLine()) != null && i < nSets) {
-			splitLine = line.trim().split(" ");
-			for (String str : splitLine) {
-				setElementMap.put(Integer.valueOf(i), new Subset(Integer.valueOf(str)));
-				i++;
-			}
-		}
-		LOGGER.trace("costs read successfully");
-		return line;
+	public void setRandom(RandomUtils random) {
+		this.random = random;
 	}
 
 	public Integer getnSets() {
 		return nSets;
 	}
 
-	public void setnSets(Integer nSets) {
-		this.nSets = nSets;
-	}
-
 	public Integer getnElements() {
 		return nElements;
 	}
 
-	public void setnElements(Integer nElements) {
-		this.nElements = nElements;
+	/**
+	 * Checks whether the given set is in the solution, without boxing it
+	 * 
+	 * @param set
+	 * @return
+	 */
+	public boolean isSetCovered(int set) {
+		return coveredSets.contains(set);
 	}
 
-	public boolean[][] getMap() {
-		return map;
+	/**
+	 * Index from each element (row) to the sets that contain it
+	 * 
+	 * @return
+	 */
+	public CompressedIndex getElementSets() {
+		return elementSets;
 	}
 
-	public void setMap(boolean[][] map) {
-		this.map = map;
+	/**
+	 * Index from each set (column) to the elements it contains
+	 * 
+	 * @return
+	 */
+	public CompressedIndex getSetElements() {
+		return setElements;
 	}
 
-	public HashMap<Integer, ArrayList<Integer>> getElementSetMap() {
-		return elementSetMap;
+	public int getSetCost(int set) {
+		return costs[set];
 	}
 
-	public HashMap<Integer, Subset> getSetElementMap() {
-		return setElementMap;
+	/**
+	 * Number of elements contained in the given set
+	 * 
+	 * @param set
+	 * @return
+	 */
+	public int getSetSize(int set) {
+		return setElements.count(set);
 	}
 
-	public HashSet<Integer> getCoveredElements() {
+	public Set<Integer> getCoveredElements() {
 		return coveredElements;
 	}
 
-	public void setCoveredElements(HashSet<Integer> coveredElements) {
-		this.coveredElements = coveredElements;
-	}
-
-	public HashSet<Integer> getUncoveredElements() {
+	public Set<Integer> getUncoveredElements() {
 		return uncoveredElements;
 	}
 
-	public void setUncoveredElements(HashSet<Integer> uncoveredElements) {
-		this.uncoveredElements = uncoveredElements;
+	public Set<Integer> getCoveredSets() {
+		return coveredSets;
 	}
 
-	public HashSet<Integer> getCoveredSets() {
-		return coveredSets;
+	public Set<Integer> getUncoveredSets() {
+		return uncoveredSets;
 	}
 
-	public void setCoveredSets(HashSet<Integer> coveredSets) {
-		this.coveredSets = coveredSets;
+	/**
+	 * Random element among the uncovered ones, chosen in constant time
+	 * 
+	 * @return
+	 */
+	public int getRandomUncoveredElement() {
+		return random.getRandomFromSet(uncoveredElements);
 	}
 
-	public HashSet<Integer> getUncoveredSets() {
-		return uncoveredSets;
+	/**
+	 * Random set among the covered ones, chosen in constant time
+	 * 
+	 * @return
+	 */
+	public int getRandomCoveredSet() {
+		return random.getRandomFromSet(coveredSets);
 	}
 
-	public void setUncoveredSets(HashSet<Integer> uncoveredSets) {
-		this.uncoveredSets = uncoveredSets;
+	/**
+	 * Identifiers of the currently covered sets in ascending order
+	 * 
+	 * @return
+	 */
+	public int[] getCoveredSetsArray() {
+		return coveredSets.toIntArray();
 	}
 
 	public String getInstanceFile() {
-		return instanceFile;
+		return instance.getInstanceFile();
 	}
 
 	/**
-	 * Logic to set an element as covered
+	 * Number of currently covered sets that contain the given element
 	 * 
 	 * @param element
+	 * @return
 	 */
-	public void coverElement(Integer element) {
-		uncoveredElements.remove(element);
-		coveredElements.add(element);
+	public int getCoverCount(int element) {
+		return coverCount[element];
 	}
 
 	/**
-	 * Logic to establish a set as covered.
+	 * Checks whether the given set can leave the solution without uncovering
+	 * any element, i.e. it is covered and all of its elements are also
+	 * covered by some other set
 	 * 
 	 * @param set
+	 * @return
 	 */
-	public void coverSet(Integer set) {
-		if (uncoveredSets.remove(set)) {
-			coveredSets.add(set);
-			for (Integer elem : setElementMap.get(set).getElems()) {
-				coverElement(elem);
+	public boolean isSetRedundant(int set) {
+		if (!coveredSets.contains(set)) {
+			return false;
+		}
+		for (int k = setElements.getStart(set); k < setElements.getEnd(set); k++) {
+			if (coverCount[setElements.get(k)] < 2) {
+				return false;
 			}
 		}
+		return true;
 	}
 
 	/**
-	 * Sets the covered sets to be the ones provided as parameter. Updates the
-	 * uncovered sets and the covered and uncovered elements corresponding to
-	 * the provided covered sets argument
+	 * Logic to establish a set as covered.
 	 * 
-	 * @param coveredSetss
-	 */
-	public void restoreCoveredSets(HashSet<Integer> coveredSetss) {
-		initCoveredSets();
-		coveredSets = new HashSet<>(coveredSetss);
-		uncoveredSets.removeAll(coveredSets);
-		updateCoveredElements();
-	}
-
-	/**
-	 * Based on the current covered sets of the problem, aligns the status of
-	 * uncovered sets and covered/uncovered elements to the current state of the
-	 * forementioned covered sets
+	 * @param set
 	 */
-	public void restoreCoveredSets() {
-		HashSet<Integer> coveredSetss = coveredSets;
-		initCoveredSets();
-		coveredSets = new HashSet<>(coveredSetss);
-		uncoveredSets.removeAll(coveredSets);
-		updateCoveredElements();
+	public void coverSet(int set) {
+		if (uncoveredSets.remove(set)) {
+			coveredSets.add(set);
+			coverElements(set);
+			record(set, MOVE_COVER);
+		}
 	}
 
 	/**
@@ -364,10 +362,11 @@ public final class SetCoveringProblem implements Serializable {
 	 * @param set
 	 * @return
 	 */
-	public Boolean uncoverSet(Integer set) {
+	public boolean uncoverSet(int set) {
 		if (coveredSets.remove(set)) {
 			uncoveredSets.add(set);
-			updateCoveredElements();
+			uncoverElements(set);
+			record(set, MOVE_UNCOVER);
 			return true;
 		}
 		return false;
@@ -382,252 +381,301 @@ public final class SetCoveringProblem implements Serializable {
 	 * @param set
 	 * @return
 	 */
-	public Boolean uncoverSetIncomplete(Integer set) {
+	public boolean uncoverSetIncomplete(int set) {
 		if (coveredSets.remove(set)) {
-			updateCoveredElements();
+			uncoverElements(set);
+			record(set, MOVE_UNCOVER_INCOMPLETE);
 			return true;
 		}
 		return false;
 	}
 
 	/**
-	 * Method to uncover all sets of the current set covering problem.
+	 * Method to uncover all sets of the current set covering problem. Not
+	 * recorded in the journal of moves, which is discarded
 	 */
 	public void uncoverAllSets() {
 		initCoveredLists();
+		journalSize = 0;
 	}
 
-	private void updateCoveredElements() {
-		initCoveredElements();
-		for (Integer s : coveredSets) {
-			coveredElements.addAll(setElementMap.get(s).getElems());
+	/**
+	 * Starts recording the moves (covered and uncovered sets) done on the
+	 * solution, so they can be undone with {@link #undoMoves(int)}. Returns
+	 * the mark of the current point of the journal. Can be called again while
+	 * recording to get further marks
+	 * 
+	 * @return
+	 */
+	public int beginMoves() {
+		if (journal == null) {
+			journal = new int[Math.max(16, nSets)];
 		}
-		uncoveredElements.removeAll(coveredElements);
+		journaling = true;
+		return journalSize;
 	}
 
 	/**
-	 * Returns the cost of the current covered sets
+	 * Mark of the current point of the journal of moves
 	 * 
 	 * @return
 	 */
-	public Integer getCoveredSetsCost() {
-		Integer totalCost = 0;
-		for (Integer cs : coveredSets) {
-			totalCost += setElementMap.get(cs).getCost();
+	public int markMoves() {
+		return journalSize;
+	}
+
+	/**
+	 * Reverts, from the last one, the moves recorded after the given mark.
+	 * The cost is proportional to the number of elements of the sets involved
+	 * in the undone moves
+	 * 
+	 * @param mark
+	 */
+	public void undoMoves(int mark) {
+		int set;
+		while (journalSize > mark) {
+			set = journal[--journalSize] >>> MOVE_BITS;
+			switch (journal[journalSize] & ((1 << MOVE_BITS) - 1)) {
+			case MOVE_COVER:
+				coveredSets.remove(set);
+				uncoveredSets.add(set);
+				uncoverElements(set);
+				break;
+			case MOVE_UNCOVER:
+				uncoveredSets.remove(set);
+				coveredSets.add(set);
+				coverElements(set);
+				break;
+			case MOVE_UNCOVER_INCOMPLETE:
+				coveredSets.add(set);
+				coverElements(set);
+				break;
+			}
 		}
-		return totalCost;
 	}
 
 	/**
-	 * Returns the cost of the current covered sets
+	 * Stops recording moves and discards the journal, keeping the current
+	 * state of the solution
+	 */
+	public void endMoves() {
+		journaling = false;
+		journalSize = 0;
+	}
+
+	/**
+	 * Adds the given move to the journal if the moves are being recorded
 	 * 
-	 * @return
+	 * @param set
+	 * @param move
 	 */
-	public Integer getSetsCost(List<Integer> covereddSets) {
-		Integer totalCost = 0;
-		for (Integer cs : covereddSets) {
-			totalCost += setElementMap.get(cs).getCost();
+	private void record(int set, int move) {
+		if (!journaling) {
+			return;
 		}
-		return totalCost;
+		if (journalSize == journal.length) {
+			journal = Arrays.copyOf(journal, journal.length * 2);
+		}
+		journal[journalSize++] = (set << MOVE_BITS) | move;
 	}
 
 	/**
-	 * Returns the minimum cost value for the currently uncovered sets
+	 * Increments the cover counters of the elements contained in the given
+	 * set, marking as covered the ones reaching one, and adds its cost to the
+	 * cost of the solution
 	 * 
-	 * @return
+	 * @param set
 	 */
-	public Integer getMinUncoveredSetCost() {
-		IntSummaryStatistics summaryStatistics = setElementMap.entrySet().stream()
-				.filter(s -> uncoveredSets.contains(s.getKey()))
-				.filter(s -> uncoveredElements.stream()
-						.anyMatch(p -> s.getValue().getElems().contains(p)))
-				.mapToInt(s -> s.getValue().getCost()).summaryStatistics();
-		return summaryStatistics.getMin();
+	private void coverElements(int set) {
+		coveredCost += costs[set];
+		int elem;
+		for (int k = setElements.getStart(set); k < setElements.getEnd(set); k++) {
+			elem = setElements.get(k);
+			if (coverCount[elem]++ == 0) {
+				uncoveredElements.remove(elem);
+				coveredElements.add(elem);
+			}
+		}
 	}
 
 	/**
-	 * Returns the minimum cost value for the currently uncovered sets
+	 * Decrements the cover counters of the elements contained in the given
+	 * set, marking as uncovered the ones reaching zero, and subtracts its
+	 * cost from the cost of the solution
 	 * 
-	 * @return
+	 * @param set
 	 */
-	public Double getMinUncoveredSetCostElemsRatio() {
-
-		DoubleSummaryStatistics summaryStatistics = setElementMap.entrySet().stream()
-				.filter(s -> uncoveredSets.contains(s.getKey()))
-				.filter(s -> uncoveredElements.stream()
-						.anyMatch(p -> s.getValue().getElems().contains(p)))
-				.mapToDouble(s -> Double.valueOf(s.getValue().getCost())
-						/ Double.valueOf(s.getValue().getNumElems()))
-				.summaryStatistics();
-		return summaryStatistics.getMin();
+	private void uncoverElements(int set) {
+		coveredCost -= costs[set];
+		int elem;
+		for (int k = setElements.getStart(set); k < setElements.getEnd(set); k++) {
+			elem = setElements.get(k);
+			if (--coverCount[elem] == 0) {
+				coveredElements.remove(elem);
+				uncoveredElements.add(elem);
+			}
+		}
 	}
 
 	/**
-	 * Returns the minimum cost value for the currently uncovered sets
+	 * Returns the cost of the current covered sets
 	 * 
 	 * @return
 	 */
-	public Double getMinUncoveredSetCostAdditionalElemsRatio() {
+	public Integer getCoveredSetsCost() {
+		return coveredCost;
+	}
 
-		DoubleSummaryStatistics summaryStatistics = setElementMap.entrySet()
-				.stream().filter(
-						s -> uncoveredSets.contains(s.getKey()))
-				.filter(s -> uncoveredElements.stream()
-						.anyMatch(
-								p -> s.getValue().getElems().contains(p)))
-				.mapToDouble(
-						s -> Double
-								.valueOf(
-										s.getValue().getCost())
-								/ Double.valueOf(ListUtils.intersection(s.getValue().getElems(),
-										new ArrayList<>(uncoveredElements)).size()))
-				.summaryStatistics();
-		return summaryStatistics.getMin();
+	/**
+	 * Cost of the current covered sets, without boxing
+	 * 
+	 * @return
+	 */
+	public int getCost() {
+		return coveredCost;
 	}
 
 	/**
-	 * Returns the best set for a given cost. Best set determined by the number
-	 * of elements that a set covers. The more elements it covers the better it
-	 * is considered. In case of a tie it is chosen randomly between the tied
-	 * ones.
+	 * Returns the cost of the current covered sets
 	 * 
-	 * @param minCost
+	 * @return
+	 */
+	public Integer getSetsCost(List<Integer> covereddSets) {
+		int totalCost = 0;
+		for (Integer cs : covereddSets) {
+			totalCost += costs[cs];
+		}
+		return totalCost;
+	}
+
+	/**
+	 * Greedy value of a set used in CH4: its cost divided by the number of
+	 * uncovered elements it would cover
 	 * 
+	 * @param set
 	 * @return
 	 */
-	public Integer getBestUncoveredSetForCost(Integer cost) {
-		List<Entry<Integer, Subset>> uncoveredFiltered = setElementMap.entrySet().stream()
-				.filter(s -> s.getValue().getCost().equals(cost))
-				.filter(s -> uncoveredElements.stream()
-						.anyMatch(p -> s.getValue().getElems().contains(p)))
-				.collect(Collectors.toList());
-		return extractMaxNumElems(uncoveredFiltered);
+	private double costAdditionalElemsRatio(int set) {
+		return Double.valueOf(costs[set]) / Double.valueOf(uncoveredInSet[set]);
 	}
 
 	/**
+	 * Checks whether the given set contains at least one of the currently
+	 * uncovered elements
 	 * 
-	 * @param costElemsRatio
+	 * @param set
 	 * @return
 	 */
-	public Integer getBestUncoveredSetForCostElemsRatio(Double costElemsRatio) {
-		List<Entry<Integer, Subset>> uncoveredFiltered = setElementMap.entrySet().stream()
-				.filter(s -> Double
-						.valueOf(Double.valueOf(s.getValue().getCost())
-								/ Double.valueOf(s.getValue().getNumElems()))
-						.equals(costElemsRatio))
-				.filter(s -> uncoveredElements.stream()
-						.anyMatch(p -> s.getValue().getElems().contains(p)))
-				.collect(Collectors.toList());
-		return extractMaxNumElems(uncoveredFiltered);
+	private boolean hasUncoveredElements(int set) {
+		for (int k = setElements.getStart(set); k < setElements.getEnd(set); k++) {
+			if (coverCount[setElements.get(k)] == 0) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
+	 * Number of currently uncovered elements that would be covered by the
+	 * given set
 	 * 
-	 * @param costAdditionalElemsRatio
+	 * @param set
 	 * @return
 	 */
-	public Integer getBestUncoveredSetForCostAdditionalElemsRatio(Double costAdditionalElemsRatio) {
-		List<Entry<Integer, Subset>> uncoveredFiltered = setElementMap.entrySet().stream()
-				.filter(s -> Double
-						.valueOf(
-								Double.valueOf(
-										s.getValue().getCost()) / Double
-												.valueOf(
-														ListUtils
-																.intersection(
-																		s.getValue().getElems(),
-																		new ArrayList<>(
-																				uncoveredElements))
-																.size()))
-						.equals(costAdditionalElemsRatio))
-				.filter(s -> uncoveredElements.stream()
-						.anyMatch(p -> s.getValue().getElems().contains(p)))
-				.collect(Collectors.toList());
-		return extractMaxNumElems(uncoveredFiltered);
+	public int countUncoveredElements(int set) {
+		int count = 0;
+		for (int k = setElements.getStart(set); k < setElements.getEnd(set); k++) {
+			if (coverCount[setElements.get(k)] == 0) {
+				count++;
+			}
+		}
+		return count;
 	}
 
 	/**
-	 * Returns the identifier of the set which contains the biggest number of
-	 * elements associated to it. Method used as second filter to refine the
-	 * heuristics
+	 * Among the first n candidates of the given buffer, returns the set with
+	 * the biggest number of elements. Ties are broken randomly, taking the
+	 * candidates in ascending order
 	 * 
-	 * @param uncoveredFiltered
+	 * @param candidates
+	 * @param n
 	 * @return
 	 */
-	private Integer extractMaxNumElems(List<Entry<Integer, Subset>> uncoveredFiltered) {
-		List<Entry<Integer, Subset>> maxNumElemsFiltered = uncoveredFiltered.stream()
-				.filter(s -> uncoveredFiltered.stream().mapToInt(p -> p.getValue().getNumElems())
-						.summaryStatistics().getMax() == s.getValue().getNumElems().intValue())
-				.collect(Collectors.toList());
-		return maxNumElemsFiltered
-				.get(RandomUtils.getInstance(null).getRandomInt(maxNumElemsFiltered.size()))
-				.getKey();
+	private int pickMaxNumElems(int[] candidates, int n) {
+		Arrays.sort(candidates, 0, n);
+		int maxNumElems = 0;
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (setElements.count(candidates[i]) > maxNumElems) {
+				maxNumElems = setElements.count(candidates[i]);
+				count = 1;
+			} else if (setElements.count(candidates[i]) == maxNumElems) {
+				count++;
+			}
+		}
+		int chosen = random.getRandomInt(count);
+		for (int i = 0; i < n; i++) {
+			if (setElements.count(candidates[i]) == maxNumElems && chosen-- == 0) {
+				return candidates[i];
+			}
+		}
+		throw new IllegalStateException("No candidate set to choose from");
 	}
 
 	/**
 	 * Starting from the highest cost set tries to eliminate sets checking that
 	 * the current coverage of elements is not changed
 	 */
-	@SuppressWarnings("unchecked")
 	public void redundancyElimination() {
-		ArrayList<Entry<Integer, Subset>> orderedSets = (ArrayList<Entry<Integer, Subset>>) setElementMap
-				.entrySet().stream()
-				.filter(s -> coveredSets.contains(s.getKey())).sorted((s1, s2) -> Integer
-						.compare(s2.getValue().getCost(), s1.getValue().getCost()))
-				.collect(Collectors.toList());
-
-		List<Entry<Integer, Subset>> filteredList;
-		Iterator<Entry<Integer, Subset>> iter = orderedSets.iterator();
-		Entry<Integer, Subset> tmp;
-		while (iter.hasNext()) {
-			tmp = iter.next();
-			filteredList = ListUtils.removeAll(orderedSets, Arrays.asList(tmp));
-			if (getCoveredElements(filteredList).containsAll(coveredElements)) {
-				uncoveredSets.add(tmp.getKey());
-				coveredSets.remove(tmp.getKey());
-				iter.remove();
-			}
+		if (redundancyOrder == null) {
+			redundancyOrder = new long[nSets];
 		}
+		// Sort keys holding the negated cost in the high half and the set in
+		// the low half: descending cost, then ascending set identifier
+		int numCovered = 0;
+		for (int s = coveredSets.nextSetBit(0); s >= 0; s = coveredSets.nextSetBit(s + 1)) {
+			redundancyOrder[numCovered++] = ((long) -costs[s] << 32) | s;
+		}
+		Arrays.sort(redundancyOrder, 0, numCovered);
 
-	}
-
-	private HashSet<Integer> getCoveredElements(List<Entry<Integer, Subset>> sets) {
-		HashSet<Integer> coveredElems = new HashSet<>();
-		for (Entry<Integer, Subset> s : sets) {
-			coveredElems.addAll(s.getValue().getElems());
+		int set;
+		for (int i = 0; i < numCovered; i++) {
+			set = (int) redundancyOrder[i];
+			if (isSetRedundant(set)) {
+				uncoverSet(set);
+			}
 		}
-		return coveredElems;
 	}
 
 	public List<Integer> getOrderedUncoveredSets() {
-		return this.getSetElementMap().entrySet().stream()
-				.filter(s -> this.getUncoveredSets().contains(s.getKey()))
-				.sorted((s1, s2) -> Integer.compare(s1.getValue().getCost(),
-						s2.getValue().getCost()))
-				.map(Map.Entry::getKey).collect(Collectors.toList());
+		return uncoveredSets.stream().sorted((s1, s2) -> Integer.compare(costs[s1], costs[s2]))
+				.collect(Collectors.toList());
 	}
 
 	/**
 	 * Solution for the constructive heuristic 1. Random selection of elements
 	 * and sets
 	 */
-	@SuppressWarnings("unchecked")
 	public void ch1Solution() {
-		Integer randomElement;
-		Integer selectedSet;
-		List<Integer> availableSets;
+		if (tiedSets == null) {
+			tiedSets = new int[nSets];
+		}
+		int randomElement;
+		int numAvailable;
 		while (!constructiveHeuristicTerminate()) {
 			// Choose a random element from the uncovered ones
-			randomElement = RandomUtils.getInstance(null)
-					.getRandomFromSet(this.getUncoveredElements());
+			randomElement = getRandomUncoveredElement();
 
-			availableSets = ListUtils.subtract(this.getElementSetMap().get(randomElement),
-					new ArrayList<>(this.getCoveredSets()));
-			if (!availableSets.isEmpty()) {
+			numAvailable = 0;
+			for (int k = elementSets.getStart(randomElement); k < elementSets
+					.getEnd(randomElement); k++) {
+				if (!coveredSets.contains(elementSets.get(k))) {
+					tiedSets[numAvailable++] = elementSets.get(k);
+				}
+			}
+			if (numAvailable > 0) {
 				// Choose a random set from the uncovered sets
-				selectedSet = availableSets
-						.get(RandomUtils.getInstance(null).getRandomInt(availableSets.size()));
-				this.coverSet(selectedSet);
+				this.coverSet(tiedSets[random.getRandomInt(numAvailable)]);
 			}
 		}
 	}
@@ -637,11 +685,7 @@ public final class SetCoveringProblem implements Serializable {
 	 * value
 	 */
 	public void ch2Solution() {
-		Integer minCost;
-		while (!constructiveHeuristicTerminate()) {
-			minCost = this.getMinUncoveredSetCost();
-			this.coverSet(this.getBestUncoveredSetForCost(minCost));
-		}
+		sortedGreedySolution(instance.getCostOrder());
 	}
 
 	/**
@@ -649,89 +693,196 @@ public final class SetCoveringProblem implements Serializable {
 	 * its number of elements as greedy value
 	 */
 	public void ch3Solution() {
-		Double minCost;
-		while (!constructiveHeuristicTerminate()) {
-			minCost = this.getMinUncoveredSetCostElemsRatio();
-			this.coverSet(this.getBestUncoveredSetForCostElemsRatio(minCost));
-		}
+		sortedGreedySolution(instance.getCostElemsRatioOrder());
 	}
 
 	/**
-	 * Greedy heuristic implementation using the weight of a subset divided by
-	 * the new elements that would be added to the solution as greedy value
+	 * Greedy construction for the heuristics whose greedy value does not
+	 * change while the solution is built. The sets are visited in the
+	 * pre-computed order with a cursor that only moves forward, as a set that
+	 * does not cover new elements will not cover them later on. The next set
+	 * to cover is chosen randomly among the group of sets tied with the first
+	 * available one (same greedy value and number of elements).
+	 * 
+	 * @param sorted
 	 */
-	public void ch4Solution() {
-		Double minCost;
+	private void sortedGreedySolution(ProblemInstance.SortedSets sorted) {
+		if (tiedSets == null) {
+			tiedSets = new int[nSets];
+		}
+		int cursor = 0;
+		int numTied;
 		while (!constructiveHeuristicTerminate()) {
-			minCost = this.getMinUncoveredSetCostAdditionalElemsRatio();
-			this.coverSet(this.getBestUncoveredSetForCostAdditionalElemsRatio(minCost));
+			while (!isGreedyCandidate(sorted.sets[cursor])) {
+				cursor++;
+			}
+			numTied = 0;
+			for (int i = cursor; i < sorted.groupEnd[cursor]; i++) {
+				if (isGreedyCandidate(sorted.sets[i])) {
+					tiedSets[numTied++] = sorted.sets[i];
+				}
+			}
+			this.coverSet(tiedSets[random.getRandomInt(numTied)]);
 		}
 	}
 
 	/**
-	 * Sets the termination condition for the constructive heuristic algorithm
+	 * Checks whether a set can be chosen by the greedy heuristics: it is not
+	 * part of the solution and it would cover new elements
 	 * 
+	 * @param set
 	 * @return
 	 */
-	private boolean constructiveHeuristicTerminate() {
-		return this.getUncoveredElements().isEmpty();
+	private boolean isGreedyCandidate(int set) {
+		return uncoveredSets.contains(set) && hasUncoveredElements(set);
 	}
 
 	/**
-	 * Contains the list of values for a given column together with the cost
-	 * associated to these values
-	 * 
-	 * @author Fabio Navarrete
-	 *
-	 */
-	public class Subset implements Serializable {
-		/**
-		 * 
-		 */
-		private static final long serialVersionUID = -667865852424882705L;
-
-		/**
-		 * @serial
-		 */
-		private ArrayList<Integer> elems = new ArrayList<>();
-		/**
-		 * @serial
-		 */
-		private Integer cost;
-		/**
-		 * Number of elements that the set contains
-		 * 
-		 * @serial
-		 */
-		private Integer numElems;
-
-		public Subset(Integer cost) {
-			this.cost = cost;
+	 * Greedy heuristic implementation using the weight of a subset divided by
+	 * the new elements that would be added to the solution as greedy value.
+	 * 
+	 * As the number of uncovered elements of a set can only decrease while
+	 * the solution is built, the greedy value of a set can only grow. It is
+	 * then computed lazily: the sets are kept in a heap with the last value
+	 * computed for them, which is a lower bound of the current one, and a set
+	 * is only re-evaluated when it reaches the top of the heap. All the sets
+	 * tied with the minimum value are extracted and the choice among them is
+	 * done by number of elements and randomly as in the rest of heuristics.
+	 * The number of uncovered elements of each set is counted once at the
+	 * beginning and decremented as its elements get covered.
+	 */
+	public void ch4Solution() {
+		if (greedyQueue == null) {
+			greedyQueue = new SetPriorityQueue(nSets);
+			tiedSets = new int[nSets];
+			uncoveredInSet = new int[nSets];
 		}
-
-		public Integer getNumElems() {
-			return numElems;
+		Arrays.fill(uncoveredInSet, 0);
+		for (int e = uncoveredElements.nextSetBit(0); e >= 0; e = uncoveredElements
+				.nextSetBit(e + 1)) {
+			for (int l = elementSets.getStart(e); l < elementSets.getEnd(e); l++) {
+				uncoveredInSet[elementSets.get(l)]++;
+			}
 		}
-
-		public void setNumElems(Integer numElems) {
-			this.numElems = numElems;
+		greedyQueue.clear();
+		for (int s = uncoveredSets.nextSetBit(0); s >= 0; s = uncoveredSets.nextSetBit(s + 1)) {
+			if (uncoveredInSet[s] > 0) {
+				greedyQueue.push(s, costAdditionalElemsRatio(s));
+			}
 		}
-
-		public ArrayList<Integer> getElems() {
-			return elems;
+		double minCost;
+		int numTied;
+		while (!constructiveHeuristicTerminate()) {
+			minCost = refreshGreedyTop();
+			numTied = 0;
+			while (!greedyQueue.isEmpty() && refreshGreedyTop() == minCost) {
+				tiedSets[numTied++] = greedyQueue.pop();
+			}
+			int selected = pickMaxNumElems(tiedSets, numTied);
+			for (int i = 0; i < numTied; i++) {
+				if (tiedSets[i] != selected) {
+					greedyQueue.push(tiedSets[i], minCost);
+				}
+			}
+			this.coverSet(selected);
+			// Elements covered for the first time are no longer new elements
+			// for the sets containing them
+			for (int k = setElements.getStart(selected); k < setElements.getEnd(selected); k++) {
+				if (coverCount[setElements.get(k)] == 1) {
+					int elem = setElements.get(k);
+					for (int l = elementSets.getStart(elem); l < elementSets.getEnd(elem); l++) {
+						uncoveredInSet[elementSets.get(l)]--;
+					}
+				}
+			}
 		}
+	}
 
-		public void setElems(ArrayList<Integer> set) {
-			this.elems = set;
+	/**
+	 * Brings to the top of the lazy greedy heap a set whose stored value is
+	 * up to date, discarding the sets which do not cover new elements anymore.
+	 * Returns the value of the top set, or positive infinity when the heap
+	 * gets empty.
+	 * 
+	 * @return
+	 */
+	private double refreshGreedyTop() {
+		int top;
+		double current;
+		while (!greedyQueue.isEmpty()) {
+			top = greedyQueue.peek();
+			if (uncoveredInSet[top] == 0 || !uncoveredSets.contains(top)) {
+				greedyQueue.pop();
+				continue;
+			}
+			current = costAdditionalElemsRatio(top);
+			if (current == greedyQueue.peekKey()) {
+				return current;
+			}
+			greedyQueue.updateTop(current);
 		}
+		return Double.POSITIVE_INFINITY;
+	}
 
-		public Integer getCost() {
-			return cost;
+	/**
+	 * Covers the currently uncovered elements choosing the sets with the
+	 * greedy value of the given heuristic. Unlike the constructive heuristics,
+	 * which go through all the sets, only the sets containing some uncovered
+	 * element are considered, found through the element to sets index, so the
+	 * cost depends on the size of the gap to fill and not on the size of the
+	 * instance. On each step the set with the lowest greedy value is covered,
+	 * ties are broken by number of elements and then randomly
+	 * 
+	 * @param heuristic
+	 */
+	public void repair(ConstructiveHeuristic heuristic) {
+		if (repairVisited == null) {
+			repairVisited = new int[nSets];
 		}
-
-		public void setCost(Integer cost) {
-			this.cost = cost;
+		if (tiedSets == null) {
+			tiedSets = new int[nSets];
+		}
+		int elem;
+		int set;
+		int numTied;
+		double value;
+		double minValue;
+		while (!constructiveHeuristicTerminate()) {
+			repairStep++;
+			numTied = 0;
+			minValue = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < uncoveredElements.size(); i++) {
+				elem = uncoveredElements.get(i);
+				for (int l = elementSets.getStart(elem); l < elementSets.getEnd(elem); l++) {
+					set = elementSets.get(l);
+					if (repairVisited[set] == repairStep || !uncoveredSets.contains(set)) {
+						continue;
+					}
+					repairVisited[set] = repairStep;
+					value = heuristic.greedyValue(this, set);
+					if (value < minValue) {
+						minValue = value;
+						numTied = 0;
+					}
+					if (value == minValue) {
+						tiedSets[numTied++] = set;
+					}
+				}
+			}
+			if (numTied == 0) {
+				return;
+			}
+			this.coverSet(pickMaxNumElems(tiedSets, numTied));
 		}
 	}
 
+	/**
+	 * Sets the termination condition for the constructive heuristic algorithm
+	 * 
+	 * @return
+	 */
+	private boolean constructiveHeuristicTerminate() {
+		return this.getUncoveredElements().isEmpty();
+	}
+
 }
@@ -0,0 +1,118 @@
+package be.ac.optimization.heuristic;
+
+/**
+ * Binary min-heap of set identifiers keyed by a double value. Used by the
+ * lazy greedy constructive heuristics, where the key stored for a set can be
+ * stale (a lower bound of its current value) and is only refreshed when the
+ * set reaches the top of the heap
+ *
+ * @author Fabio Navarrete
+ *
+ */
+final class SetPriorityQueue {
+	private final int[] heap;
+	private final double[] keys;
+	private int size;
+
+	SetPriorityQueue(int nSets) {
+		heap = new int[nSets];
+		keys = new double[nSets];
+		size = 0;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Adds a set to the heap with the given key. A set must not be added twice
+	 *
+	 * @param set
+	 * @param key
+	 */
+	void push(int set, double key) {
+		keys[set] = key;
+		heap[size] = set;
+		siftUp(size++);
+	}
+
+	/**
+	 * Set with the lowest key
+	 *
+	 * @return
+	 */
+	int peek() {
+		return heap[0];
+	}
+
+	/**
+	 * Key currently stored for the set on the top of the heap
+	 *
+	 * @return
+	 */
+	double peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Removes and returns the set with the lowest key
+	 *
+	 * @return
+	 */
+	int pop() {
+		int top = heap[0];
+		heap[0] = heap[--size];
+		if (size > 0) {
+			siftDown(0);
+		}
+		return top;
+	}
+
+	/**
+	 * Changes the key of the set on the top of the heap to a greater or equal
+	 * value and restores the heap order
+	 *
+	 * @param key
+	 */
+	void updateTop(double key) {
+		keys[heap[0]] = key;
+		siftDown(0);
+	}
+
+	private void siftUp(int pos) {
+		int set = heap[pos];
+		double key = keys[set];
+		int parent;
+		while (pos > 0) {
+			parent = (pos - 1) >>> 1;
+			if (keys[heap[parent]] <= key) {
+				break;
+			}
+			heap[pos] = heap[parent];
+			pos = parent;
+		}
+		heap[pos] = set;
+	}
+
+	private void siftDown(int pos) {
+		int set = heap[pos];
+		double key = keys[set];
+		int child;
+		while ((child = 2 * pos + 1) < size) {
+			if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+				child++;
+			}
+			if (key <= keys[heap[child]]) {
+				break;
+			}
+			heap[pos] = heap[child];
+			pos = child;
+		}
+		heap[pos] = set;
+	}
+
+}
@@ -3,40 +3,30 @@ package be.ac.optimization.heuristic;
 public class SimulatedAnnealingHelper {
 
 	/**
-	 * Function implementing the metropolis condition to determine the
-	 * probability of acceptance of a neighbour-candidate solution
+	 * Metropolis condition computed from the costs of the current and the
+	 * neighbour solutions
 	 * 
 	 * @param temperature
-	 * @param initialSCP
-	 * @param neighbourSCP
+	 * @param currentCost
+	 * @param neighbourCost
 	 * @return
 	 */
-	public static Double pAccept(Double temperature, SetCoveringProblem initialSCP,
-			SetCoveringProblem neighbourSCP) {
-		if (neighbourSCP.getCoveredSetsCost() <= initialSCP.getCoveredSetsCost()) {
+	public static double pAccept(double temperature, int currentCost, int neighbourCost) {
+		if (neighbourCost <= currentCost) {
 			return 1.0;
 		}
-		return Math.exp((initialSCP.getCoveredSetsCost() - neighbourSCP.getCoveredSetsCost())
-				/ temperature);
+		return Math.exp((currentCost - neighbourCost) / temperature);
 	}
 
 	/**
-	 * Depending on the temperature and the metropolis acceptance condition
-	 * returns the accepted set covering problem
+	 * Decides whether a neighbour with the given probability of acceptance is
+	 * accepted
 	 * 
-	 * @param temperature
-	 * @param current
-	 * @param neighbour
+	 * @param pAccept
+	 * @param random
 	 * @return
 	 */
-	public static SetCoveringProblem acceptedSCP(Double temperature, SetCoveringProblem current,
-			SetCoveringProblem neighbour) {
-		return RandomUtils.getInstance(null).getRandomDouble() <= pAccept(temperature, current,
-				neighbour) ? neighbour : current;
-	}
-
-	public static SetCoveringProblem acceptedSCP(Double temperature, Double pAccept,
-			SetCoveringProblem current, SetCoveringProblem neighbour) {
-		return RandomUtils.getInstance(null).getRandomDouble() <= pAccept ? neighbour : current;
+	public static boolean accept(double pAccept, RandomUtils random) {
+		return random.getRandomDouble() <= pAccept;
 	}
 }
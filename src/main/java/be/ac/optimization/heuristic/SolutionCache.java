@@ -0,0 +1,89 @@
+package be.ac.optimization.heuristic;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the solutions obtained after the redundancy elimination,
+ * keyed by the Zobrist hash of the solution it was applied to. When the
+ * capacity is reached the least recently used solution is evicted. As the
+ * redundancy elimination is deterministic, a solution built again by an ant
+ * can take the cached result instead of repeating it. Each entry keeps the
+ * sets of the solution it was computed from, checked on every lookup, so a
+ * collision of the 64 bit keys is taken as a miss instead of returning the
+ * result of another solution. Safe to use from several threads
+ *
+ * @author Fabio Navarrete
+ *
+ */
+final class SolutionCache {
+	private final LinkedHashMap<Long, Entry> solutions;
+	private long hits;
+	private long misses;
+
+	SolutionCache(int capacity) {
+		solutions = new LinkedHashMap<Long, Entry>(capacity * 4 / 3 + 1, 0.75f,
+				true) {
+			private static final long serialVersionUID = -2398046613404620180L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Cached result for the solution with the given hash and sets, null if
+	 * there is none
+	 *
+	 * @param hash
+	 * @param sets
+	 *            covered sets of the solution, in ascending order
+	 * @return
+	 */
+	synchronized SolutionSnapshot get(long hash, int[] sets) {
+		Entry entry = solutions.get(hash);
+		if (entry == null || !Arrays.equals(entry.sets, sets)) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.solution;
+	}
+
+	/**
+	 * Stores the result for the solution with the given hash and sets,
+	 * replacing the one of any other solution with the same hash
+	 *
+	 * @param hash
+	 * @param sets
+	 *            covered sets of the solution, in ascending order
+	 * @param solution
+	 */
+	synchronized void put(long hash, int[] sets, SolutionSnapshot solution) {
+		solutions.put(hash, new Entry(sets, solution));
+	}
+
+	synchronized long getHits() {
+		return hits;
+	}
+
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Solution before the redundancy elimination and its result
+	 */
+	private static final class Entry {
+		private final int[] sets;
+		private final SolutionSnapshot solution;
+
+		private Entry(int[] sets, SolutionSnapshot solution) {
+			this.sets = sets;
+			this.solution = solution;
+		}
+	}
+}
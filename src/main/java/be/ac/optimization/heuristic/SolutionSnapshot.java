@@ -0,0 +1,81 @@
+package be.ac.optimization.heuristic;
+
+import java.util.Arrays;
+
+/**
+ * Immutable copy of a solution of the set covering problem: the sorted
+ * identifiers of its covered sets, its cost and a hash of the sets. Much
+ * cheaper to take than a copy of the whole solution state, and two snapshots
+ * are compared by hash and cost before comparing their sets
+ *
+ * @author Fabio Navarrete
+ *
+ */
+public final class SolutionSnapshot {
+	private final int[] sets;
+	private final int cost;
+	private final int hash;
+
+	private SolutionSnapshot(int[] sets, int cost) {
+		this.sets = sets;
+		this.cost = cost;
+		this.hash = Arrays.hashCode(sets);
+	}
+
+	/**
+	 * Takes a snapshot of the sets currently covered in the given problem
+	 *
+	 * @param problem
+	 * @return
+	 */
+	public static SolutionSnapshot of(SetCoveringProblem problem) {
+		int[] sets = problem.getCoveredSetsArray();
+		int cost = 0;
+		for (int s : sets) {
+			cost += problem.getSetCost(s);
+		}
+		return new SolutionSnapshot(sets, cost);
+	}
+
+	/**
+	 * Sets the state of the given problem to the solution of the snapshot
+	 *
+	 * @param problem
+	 */
+	public void restore(SetCoveringProblem problem) {
+		problem.uncoverAllSets();
+		for (int s : sets) {
+			problem.coverSet(s);
+		}
+	}
+
+	/**
+	 * Identifiers of the covered sets in ascending order. Not to be modified
+	 *
+	 * @return
+	 */
+	public int[] getSets() {
+		return sets;
+	}
+
+	public int getCost() {
+		return cost;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof SolutionSnapshot)) {
+			return false;
+		}
+		SolutionSnapshot other = (SolutionSnapshot) obj;
+		return hash == other.hash && cost == other.cost && Arrays.equals(sets, other.sets);
+	}
+}
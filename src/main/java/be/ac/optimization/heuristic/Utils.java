@@ -3,6 +3,7 @@ package be.ac.optimization.heuristic;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Collection;
 
@@ -33,6 +34,21 @@ public class Utils {
 		return elapsedTime + ";" + cost + "\n";
 	}
 
+	/**
+	 * Appends to the given buffer the same line as
+	 * {@link #runtimeDistributionTextValue(Long, Integer, Integer)} without
+	 * creating intermediate strings
+	 * 
+	 * @param buffer
+	 * @param startTime
+	 * @param cost
+	 */
+	public static void appendRuntimeDistributionValue(StringBuilder buffer, long startTime,
+			int cost) {
+		buffer.append(System.currentTimeMillis() - startTime).append(';').append(cost)
+				.append('\n');
+	}
+
 	/**
 	 * Method used to output the values intended to be used for the quality
 	 * runtime distribution
@@ -54,6 +70,40 @@ public class Utils {
 		}
 	}
 
+	/**
+	 * Looks up the best known cost of the given instance in a file with a line
+	 * per instance: the name of its file, its best known cost and optionally
+	 * other values, separated by ';' (as analysis/instances.txt). The names
+	 * are compared without their extension, so the costs of a text instance
+	 * also apply to its pre-compiled binary version
+	 * 
+	 * @param costsFile
+	 * @param instanceFile
+	 * @return the best known cost, null if the instance is not in the file or
+	 *         the file cannot be read
+	 */
+	public static Integer readBestKnownCost(String costsFile, String instanceFile) {
+		String instanceName = Paths.get(instanceFile).getFileName().toString();
+		String baseName = withoutExtension(instanceName);
+		try {
+			for (String line : Files.readAllLines(Paths.get(costsFile))) {
+				String[] values = line.trim().split(";");
+				if (values.length > 1 && withoutExtension(values[0]).equals(baseName)) {
+					return Integer.valueOf(values[1].trim());
+				}
+			}
+			LOGGER.warn("No best known cost for " + instanceName + " in " + costsFile);
+		} catch (IOException | NumberFormatException e) {
+			LOGGER.error(e);
+		}
+		return null;
+	}
+
+	private static String withoutExtension(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		return dot > 0 ? fileName.substring(0, dot) : fileName;
+	}
+
 	public static String getQRTDOutputFileName(Long startTime, String instanceFile) {
 		return OUTPUT_DIRECTORY + startTime + Paths.get(instanceFile).getFileName().toString();
 	}
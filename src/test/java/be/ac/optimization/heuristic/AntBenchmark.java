@@ -0,0 +1,46 @@
+package be.ac.optimization.heuristic;
+
+/**
+ * Micro benchmark of the solution construction of an ant. Not a unit test, it
+ * is run by hand giving as arguments the instance file and optionally the
+ * number of measured constructions and the size of the candidate lists:
+ * 
+ * <pre>
+ * java -cp ... be.ac.optimization.heuristic.AntBenchmark scp41.txt 2000 10
+ * </pre>
+ * 
+ * @author Fabio Navarrete
+ *
+ */
+public class AntBenchmark {
+
+	private static final double BETA = 4.0;
+	private static final double PHEROMONE = 100000.0;
+
+	public static void main(String[] args) {
+		int solves = args.length > 1 ? Integer.valueOf(args[1]) : 1000;
+		SetCoveringProblem problem = new SetCoveringProblem(args[0], new RandomUtils(1));
+		PheromoneTrail pheromone = new PheromoneTrail(problem.getnSets(), PHEROMONE);
+		double[] heuristicInformation = new double[problem.getnSets()];
+		for (int s = 0; s < problem.getnSets(); s++) {
+			heuristicInformation[s] = Double.valueOf(problem.getSetSize(s))
+					/ Double.valueOf(problem.getSetCost(s));
+		}
+		int candidateListSize = args.length > 2 ? Integer.valueOf(args[2]) : 0;
+		Ant ant = new Ant(problem, pheromone, heuristicInformation, BETA, candidateListSize);
+
+		// Warm up
+		for (int i = 0; i < solves / 2; i++) {
+			ant.solve();
+		}
+		long cost = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < solves; i++) {
+			ant.solve();
+			cost += ant.getCost();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println("Ant.solve(): " + (elapsed / 1000 / solves) + " us/op (mean cost "
+				+ (cost / solves) + ")");
+	}
+}
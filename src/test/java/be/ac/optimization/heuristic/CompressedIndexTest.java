@@ -0,0 +1,64 @@
+package be.ac.optimization.heuristic;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the compressed sparse index of the instances
+ * 
+ * @author Fabio Navarrete
+ *
+ */
+public class CompressedIndexTest extends TestCase {
+
+	/**
+	 * Rows of the matrix 3 x 4: {1, 3}, {}, {0, 1, 2}
+	 * 
+	 * @return
+	 */
+	private static CompressedIndex rows() {
+		return new CompressedIndex(new int[] { 0, 2, 2, 5 }, new int[] { 1, 3, 0, 1, 2 });
+	}
+
+	public void testAccessors() {
+		CompressedIndex index = rows();
+		assertEquals(3, index.size());
+		assertEquals(5, index.getNumValues());
+		assertEquals(2, index.count(0));
+		assertEquals(0, index.count(1));
+		assertEquals(3, index.count(2));
+		assertEquals(2, index.getStart(2));
+		assertEquals(5, index.getEnd(2));
+		assertEquals(3, index.get(1));
+		assertTrue(index.contains(0, 3));
+		assertFalse(index.contains(0, 2));
+		assertFalse(index.contains(1, 0));
+		assertTrue(index.contains(2, 0));
+	}
+
+	public void testTranspose() {
+		CompressedIndex columns = rows().transpose(4);
+		assertEquals(4, columns.size());
+		assertEquals(5, columns.getNumValues());
+		// Column 0: row 2, column 1: rows 0 and 2, column 2: row 2, column 3:
+		// row 0
+		assertTrue(Arrays.equals(new int[] { 0, 1, 3, 4, 5 }, columns.getOffsets()));
+		assertTrue(Arrays.equals(new int[] { 2, 0, 2, 2, 0 }, columns.getIndices()));
+	}
+
+	public void testTransposeTwiceGivesBackTheIndex() {
+		CompressedIndex index = rows();
+		CompressedIndex back = index.transpose(4).transpose(3);
+		assertTrue(Arrays.equals(index.getOffsets(), back.getOffsets()));
+		assertTrue(Arrays.equals(index.getIndices(), back.getIndices()));
+	}
+
+	public void testTransposeWithEmptyColumns() {
+		CompressedIndex columns = rows().transpose(6);
+		assertEquals(6, columns.size());
+		assertEquals(0, columns.count(4));
+		assertEquals(0, columns.count(5));
+		assertEquals(5, columns.getNumValues());
+	}
+}
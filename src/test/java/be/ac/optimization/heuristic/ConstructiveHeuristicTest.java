@@ -0,0 +1,145 @@
+package be.ac.optimization.heuristic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the greedy constructive heuristics, checked against plain
+ * implementations of their selection rules
+ *
+ * @author Fabio Navarrete
+ *
+ */
+public class ConstructiveHeuristicTest extends TestCase {
+
+	/**
+	 * 6 elements, 6 sets: s0 {0,1,2,3} cost 4, s1 {0,1} cost 2, s2 {3,4} cost
+	 * 3, s3 {4,5} cost 4, s4 {2,4,5} cost 3, s5 {5} cost 1. On the first step
+	 * s0, s1, s4 and s5 are tied with ratio 1, and the ratios of s2, s3 and s4
+	 * grow as the solution is built, leaving their heap keys stale
+	 */
+	private static final String LAZY_INSTANCE = "6 6\n 4 2 3 4 3 1\n2\n 1 2\n2\n 1 2\n2\n 1 5\n2\n 1 3\n3\n 3 4 5\n3\n 4 5 6\n";
+
+	/**
+	 * 4 elements, 5 sets: s0 {0,1}, s1 {0}, s2 {2,3} and s3 {2,3} with cost 2
+	 * and s4 {0,1,2,3} with cost 4. s0, s2, s3 and s4 are tied with ratio 1
+	 * and s4 has the most elements. s0, s2 and s3 are tied in cost and number
+	 * of elements
+	 */
+	private static final String TIED_INSTANCE = "4 5\n 2 2 2 2 4\n3\n 1 2 5\n2\n 1 5\n3\n 3 4 5\n3\n 3 4 5\n";
+
+	private File instanceFile;
+
+	@Override
+	protected void tearDown() {
+		if (instanceFile != null) {
+			instanceFile.delete();
+		}
+	}
+
+	private ProblemInstance readInstance(String instance) throws IOException {
+		instanceFile = File.createTempFile("scp", ".txt");
+		Files.write(instanceFile.toPath(), instance.getBytes(StandardCharsets.US_ASCII));
+		return new ProblemInstance(instanceFile.getPath());
+	}
+
+	/**
+	 * Completes a solution recomputing on each step the greedy value of every
+	 * available set that would cover new elements. The instances used must have a
+	 * single set with the biggest number of elements among the tied ones, so
+	 * no random choice is involved
+	 *
+	 * @param problem
+	 * @param heuristic
+	 */
+	private static void bruteForceGreedy(SetCoveringProblem problem,
+			ConstructiveHeuristic heuristic) {
+		while (!problem.getUncoveredElements().isEmpty()) {
+			double minValue = Double.POSITIVE_INFINITY;
+			int selected = -1;
+			boolean tied = false;
+			for (int s = 0; s < problem.getnSets(); s++) {
+				if (!problem.getUncoveredSets().contains(s)
+						|| problem.countUncoveredElements(s) == 0) {
+					continue;
+				}
+				double value = heuristic.greedyValue(problem, s);
+				if (value < minValue || (value == minValue
+						&& problem.getSetSize(s) > problem.getSetSize(selected))) {
+					minValue = value;
+					selected = s;
+					tied = false;
+				} else if (value == minValue && problem.getSetSize(s) == problem.getSetSize(selected)) {
+					tied = true;
+				}
+			}
+			assertFalse("Ambiguous choice in the test instance", tied);
+			assertTrue("No set to cover the remaining elements", selected >= 0);
+			problem.coverSet(selected);
+		}
+	}
+
+	public void testCh4MatchesBruteForce() throws IOException {
+		ProblemInstance instance = readInstance(LAZY_INSTANCE);
+		SetCoveringProblem expected = new SetCoveringProblem(instance, new RandomUtils(1));
+		bruteForceGreedy(expected, ConstructiveHeuristic.CH4);
+		assertTrue(Arrays.equals(new int[] { 0, 4, 5 }, expected.getCoveredSetsArray()));
+		for (int seed = 1; seed <= 5; seed++) {
+			SetCoveringProblem problem = new SetCoveringProblem(instance, new RandomUtils(seed));
+			problem.ch4Solution();
+			assertTrue(Arrays.equals(expected.getCoveredSetsArray(), problem.getCoveredSetsArray()));
+			assertEquals(expected.getCost(), problem.getCost());
+		}
+	}
+
+	public void testSortedGreedyTieBreaking() throws IOException {
+		ProblemInstance instance = readInstance(TIED_INSTANCE);
+		boolean[] chosen = new boolean[instance.getnSets()];
+		for (int seed = 1; seed <= 20; seed++) {
+			SetCoveringProblem problem = new SetCoveringProblem(instance, new RandomUtils(seed));
+			problem.ch2Solution();
+			int[] sets = problem.getCoveredSetsArray();
+			// s1 has the same cost but fewer elements, s0 is the only one
+			// covering element 1 among the rest
+			assertEquals(2, sets.length);
+			assertEquals(0, sets[0]);
+			assertTrue(sets[1] == 2 || sets[1] == 3);
+			chosen[sets[1]] = true;
+
+			problem = new SetCoveringProblem(instance, new RandomUtils(seed));
+			problem.ch3Solution();
+			assertTrue(Arrays.equals(new int[] { 4 }, problem.getCoveredSetsArray()));
+		}
+		assertTrue(chosen[2] && chosen[3]);
+	}
+
+	public void testRepairMatchesBruteForce() throws IOException {
+		ProblemInstance instance = readInstance(LAZY_INSTANCE);
+		int[] solution = { 0, 4, 5 };
+		for (ConstructiveHeuristic heuristic : ConstructiveHeuristic.values()) {
+			for (int removed : solution) {
+				SetCoveringProblem problem = new SetCoveringProblem(instance, new RandomUtils(1));
+				for (int s : solution) {
+					problem.coverSet(s);
+				}
+				// As in the simulated annealing neighbours, the removed set
+				// is not available to the repair
+				problem.uncoverSetIncomplete(removed);
+				SetCoveringProblem expected = new SetCoveringProblem(problem);
+
+				problem.repair(heuristic);
+				assertTrue(problem.getUncoveredElements().isEmpty());
+				if (heuristic != ConstructiveHeuristic.CH1) {
+					bruteForceGreedy(expected, heuristic);
+					assertTrue(heuristic + " without s" + removed, Arrays.equals(
+							expected.getCoveredSetsArray(), problem.getCoveredSetsArray()));
+				}
+			}
+		}
+	}
+}
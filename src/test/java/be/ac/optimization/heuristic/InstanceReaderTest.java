@@ -0,0 +1,102 @@
+package be.ac.optimization.heuristic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the reader of the text and pre-compiled binary instances
+ * 
+ * @author Fabio Navarrete
+ *
+ */
+public class InstanceReaderTest extends TestCase {
+
+	/**
+	 * 4 elements, 5 sets
+	 */
+	private static final String INSTANCE = "4 5\n 3 1 2 4 5\n2\n 5 2\n3 1 3 4\n2 3 5\n1 2\n";
+
+	private File textFile;
+	private File binaryFile;
+
+	@Override
+	protected void setUp() throws IOException {
+		textFile = File.createTempFile("scp", ".txt");
+		binaryFile = File.createTempFile("scp", InstanceReader.BINARY_EXTENSION);
+		Files.write(textFile.toPath(), INSTANCE.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Override
+	protected void tearDown() {
+		textFile.delete();
+		binaryFile.delete();
+	}
+
+	public void testReadText() throws IOException {
+		InstanceReader reader = InstanceReader.read(textFile.getPath());
+		assertEquals(4, reader.getnElements());
+		assertEquals(5, reader.getnSets());
+		assertTrue(Arrays.equals(new int[] { 3, 1, 2, 4, 5 }, reader.getCosts()));
+		// Sets of each element, 0 based and sorted
+		assertTrue(Arrays.equals(new int[] { 0, 2, 5, 7, 8 },
+				reader.getElementSets().getOffsets()));
+		assertTrue(Arrays.equals(new int[] { 1, 4, 0, 2, 3, 2, 4, 1 },
+				reader.getElementSets().getIndices()));
+		assertTrue(Arrays.equals(new int[] { 0, 1, 3, 5, 6, 8 },
+				reader.getSetElements().getOffsets()));
+		assertTrue(Arrays.equals(new int[] { 1, 0, 3, 1, 2, 1, 0, 2 },
+				reader.getSetElements().getIndices()));
+	}
+
+	public void testDuplicatedSetsInARow() throws IOException {
+		// Element 0 lists set 1 twice, the only feasible solution costs 2
+		Files.write(textFile.toPath(),
+				"2 2\n1 1\n2 1 1\n1 2\n".getBytes(StandardCharsets.US_ASCII));
+		InstanceReader reader = InstanceReader.read(textFile.getPath());
+		assertTrue(Arrays.equals(new int[] { 0, 1, 2 }, reader.getElementSets().getOffsets()));
+		assertTrue(Arrays.equals(new int[] { 0, 1 }, reader.getElementSets().getIndices()));
+		assertEquals(1, reader.getSetElements().count(0));
+
+		SetCoveringProblem problem = new SetCoveringProblem(textFile.getPath(),
+				new RandomUtils(1));
+		problem.coverSet(0);
+		problem.coverSet(1);
+		problem.redundancyElimination();
+		assertTrue(problem.getUncoveredElements().isEmpty());
+		assertEquals(2, problem.getCost());
+	}
+
+	public void testBinaryRoundTrip() throws IOException {
+		InstanceReader text = InstanceReader.read(textFile.getPath());
+		text.writeBinary(binaryFile.getPath());
+		InstanceReader binary = InstanceReader.read(binaryFile.getPath());
+		assertEquals(text.getnElements(), binary.getnElements());
+		assertEquals(text.getnSets(), binary.getnSets());
+		assertTrue(Arrays.equals(text.getCosts(), binary.getCosts()));
+		assertTrue(Arrays.equals(text.getElementSets().getOffsets(),
+				binary.getElementSets().getOffsets()));
+		assertTrue(Arrays.equals(text.getElementSets().getIndices(),
+				binary.getElementSets().getIndices()));
+		assertTrue(Arrays.equals(text.getSetElements().getOffsets(),
+				binary.getSetElements().getOffsets()));
+		assertTrue(Arrays.equals(text.getSetElements().getIndices(),
+				binary.getSetElements().getIndices()));
+	}
+
+	public void testRejectCorruptedBinary() throws IOException {
+		InstanceReader.read(textFile.getPath()).writeBinary(binaryFile.getPath());
+		byte[] bytes = Files.readAllBytes(binaryFile.toPath());
+		Files.write(binaryFile.toPath(), Arrays.copyOf(bytes, bytes.length - 4));
+		try {
+			InstanceReader.read(binaryFile.getPath());
+			fail("Truncated binary instance accepted");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package be.ac.optimization.heuristic;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the bit set with constant time access by position
+ * 
+ * @author Fabio Navarrete
+ *
+ */
+public class IntBitSetTest extends TestCase {
+
+	public void testAddRemoveAtWordBoundaries() {
+		IntBitSet set = new IntBitSet(65);
+		assertTrue(set.isEmpty());
+		assertTrue(set.add(0));
+		assertTrue(set.add(63));
+		assertTrue(set.add(64));
+		assertFalse(set.add(64));
+		assertEquals(3, set.size());
+		assertTrue(set.contains(63));
+		assertTrue(set.contains(64));
+		assertFalse(set.contains(62));
+
+		assertTrue(set.remove(63));
+		assertFalse(set.remove(63));
+		assertFalse(set.contains(63));
+		assertTrue(set.contains(64));
+		assertEquals(2, set.size());
+		assertTrue(Arrays.equals(new int[] { 0, 64 }, set.toIntArray()));
+	}
+
+	public void testGetByPosition() {
+		IntBitSet set = new IntBitSet(130);
+		int[] values = { 5, 64, 127, 128, 0, 63 };
+		for (int v : values) {
+			set.add(v);
+		}
+		set.remove(127);
+		set.remove(5);
+		Set<Integer> byPosition = new HashSet<>();
+		for (int i = 0; i < set.size(); i++) {
+			byPosition.add(set.get(i));
+		}
+		assertEquals(new HashSet<>(Arrays.asList(64, 128, 0, 63)), byPosition);
+	}
+
+	public void testNextSetBit() {
+		IntBitSet set = new IntBitSet(65);
+		assertEquals(-1, set.nextSetBit(0));
+		set.add(63);
+		set.add(64);
+		assertEquals(63, set.nextSetBit(0));
+		assertEquals(63, set.nextSetBit(63));
+		assertEquals(64, set.nextSetBit(64));
+		assertEquals(-1, set.nextSetBit(65));
+		set.remove(64);
+		assertEquals(-1, set.nextSetBit(64));
+	}
+
+	public void testFillFullWord() {
+		IntBitSet set = new IntBitSet(64);
+		set.fill();
+		assertEquals(64, set.size());
+		assertTrue(set.contains(0));
+		assertTrue(set.contains(63));
+		assertEquals(63, set.nextSetBit(63));
+		assertEquals(-1, set.nextSetBit(64));
+		assertEquals(64, set.toIntArray().length);
+	}
+
+	public void testFillPartialWord() {
+		IntBitSet set = new IntBitSet(65);
+		set.fill();
+		assertEquals(65, set.size());
+		assertTrue(set.contains(64));
+		assertEquals(64, set.nextSetBit(64));
+		assertEquals(64, set.toIntArray()[64]);
+		assertTrue(set.remove(64));
+		assertEquals(-1, set.nextSetBit(64));
+		for (int i = 0; i < set.size(); i++) {
+			assertTrue(set.get(i) != 64);
+		}
+	}
+
+	public void testClearAndRefill() {
+		IntBitSet set = new IntBitSet(65);
+		set.fill();
+		set.clear();
+		assertTrue(set.isEmpty());
+		assertEquals(-1, set.nextSetBit(0));
+		set.add(64);
+		set.add(1);
+		assertEquals(2, set.size());
+		assertTrue(set.remove(64));
+		assertEquals(1, set.get(0));
+		assertTrue(Arrays.equals(new int[] { 1 }, set.toIntArray()));
+	}
+
+	public void testCopyIsIndependent() {
+		IntBitSet set = new IntBitSet(65);
+		set.add(3);
+		IntBitSet copy = new IntBitSet(set);
+		copy.add(64);
+		copy.remove(3);
+		assertTrue(set.contains(3));
+		assertFalse(set.contains(64));
+		assertEquals(1, set.size());
+		assertEquals(3, set.get(0));
+	}
+}
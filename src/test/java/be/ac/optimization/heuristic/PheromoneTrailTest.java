@@ -0,0 +1,123 @@
+package be.ac.optimization.heuristic;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the lazily evaporated pheromone trail, checked against
+ * evaporating and clamping every set of a plain array
+ *
+ * @author Fabio Navarrete
+ *
+ */
+public class PheromoneTrailTest extends TestCase {
+
+	private static final int N_SETS = 20;
+	private static final double EPSILON = 1e-9;
+
+	private PheromoneTrail trail;
+	private double[] expected;
+	private double minPheromone;
+	private double maxPheromone;
+
+	@Override
+	protected void setUp() {
+		trail = new PheromoneTrail(N_SETS, 1.0);
+		expected = new double[N_SETS];
+		Arrays.fill(expected, 1.0);
+		minPheromone = 0.0;
+		maxPheromone = 1.0;
+	}
+
+	private void evaporate(double rho) {
+		trail.evaporate(rho);
+		for (int s = 0; s < N_SETS; s++) {
+			expected[s] = Math.max(expected[s] * rho, minPheromone);
+		}
+	}
+
+	private void set(int set, double value) {
+		trail.set(set, value);
+		expected[set] = Math.min(Math.max(value, minPheromone), maxPheromone);
+	}
+
+	private void setLimits(double minPheromone, double maxPheromone) {
+		trail.setLimits(minPheromone, maxPheromone);
+		this.minPheromone = minPheromone;
+		this.maxPheromone = maxPheromone;
+	}
+
+	private void assertTrail() {
+		for (int s = 0; s < N_SETS; s++) {
+			assertEquals(expected[s], trail.get(s), EPSILON * expected[s] + Double.MIN_NORMAL);
+		}
+	}
+
+	public void testRandomUpdates() {
+		Random random = new Random(7);
+		long version = trail.getVersion();
+		for (int step = 0; step < 60; step++) {
+			switch (random.nextInt(4)) {
+			case 0:
+				evaporate(0.5 + random.nextDouble() / 2);
+				break;
+			case 1:
+				// Deposit on a few sets, as done by the best ant
+				for (int i = 0; i < 3; i++) {
+					int set = random.nextInt(N_SETS);
+					set(set, trail.get(set) + random.nextDouble());
+				}
+				break;
+			case 2:
+				// The limits may grow or shrink
+				double max = 0.5 + 2 * random.nextDouble();
+				setLimits(max * random.nextDouble() / 10, max);
+				break;
+			default:
+				set(random.nextInt(N_SETS), 3 * random.nextDouble());
+				break;
+			}
+			assertTrail();
+			assertTrue(trail.getVersion() > version);
+			version = trail.getVersion();
+		}
+	}
+
+	public void testSetAfterEvaporations() {
+		setLimits(0.01, 2.0);
+		for (int i = 0; i < 5; i++) {
+			evaporate(0.8);
+		}
+		set(3, 1.5);
+		set(4, 0.001);
+		set(5, 5.0);
+		assertTrail();
+		evaporate(0.8);
+		assertTrail();
+		// A lower minimum applies at once to the values set afterwards
+		setLimits(0.001, 2.0);
+		set(6, 0.005);
+		assertTrail();
+		evaporate(0.8);
+		assertTrail();
+	}
+
+	public void testMaterialiseUnderMinScale() {
+		// Without a minimum the scale reaches MIN_SCALE after 34
+		// evaporations, so the values are materialised along the way
+		set(2, 0.5);
+		for (int i = 0; i < 40; i++) {
+			evaporate(0.001);
+			if (i == 20) {
+				set(7, 0.9);
+			}
+		}
+		assertTrail();
+		setLimits(1e-200, 1.0);
+		set(1, 0.25);
+		evaporate(0.5);
+		assertTrail();
+	}
+}
@@ -0,0 +1,103 @@
+package be.ac.optimization.heuristic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the solution state of the set covering problem
+ * 
+ * @author Fabio Navarrete
+ *
+ */
+public class SetCoveringProblemTest extends TestCase {
+
+	/**
+	 * 4 elements, 5 sets
+	 */
+	private static final String INSTANCE = "4 5\n 3 1 2 4 5\n2\n 5 2\n3 1 3 4\n2 3 5\n1 2\n";
+
+	private File instanceFile;
+	private SetCoveringProblem problem;
+
+	@Override
+	protected void setUp() throws IOException {
+		instanceFile = File.createTempFile("scp", ".txt");
+		Files.write(instanceFile.toPath(), INSTANCE.getBytes(StandardCharsets.US_ASCII));
+		problem = new SetCoveringProblem(instanceFile.getPath(), new RandomUtils(1));
+	}
+
+	@Override
+	protected void tearDown() {
+		instanceFile.delete();
+	}
+
+	private int[] coverCounts() {
+		int[] counts = new int[problem.getnElements()];
+		for (int e = 0; e < counts.length; e++) {
+			counts[e] = problem.getCoverCount(e);
+		}
+		return counts;
+	}
+
+	private void assertState(int[] coveredSets, int[] coverCounts, int cost) {
+		assertTrue(Arrays.equals(coveredSets, problem.getCoveredSetsArray()));
+		assertTrue(Arrays.equals(coverCounts, coverCounts()));
+		assertEquals(cost, problem.getCoveredSetsCost().intValue());
+		assertEquals(cost, problem.getCost());
+		assertEquals(problem.getnSets() - coveredSets.length, problem.getUncoveredSets().size());
+	}
+
+	public void testCoverAndUncover() {
+		problem.coverSet(0);
+		problem.coverSet(2);
+		assertState(new int[] { 0, 2 }, new int[] { 0, 2, 1, 0 }, 5);
+		assertFalse(problem.getUncoveredElements().isEmpty());
+		problem.coverSet(1);
+		assertTrue(problem.getUncoveredElements().isEmpty());
+		assertTrue(problem.uncoverSet(2));
+		assertFalse(problem.uncoverSet(2));
+		assertState(new int[] { 0, 1 }, new int[] { 1, 1, 0, 1 }, 4);
+	}
+
+	public void testJournalRoundTrip() {
+		problem.coverSet(0);
+		problem.coverSet(1);
+		problem.coverSet(2);
+		int[] counts = coverCounts();
+		assertState(new int[] { 0, 1, 2 }, counts, 6);
+
+		int mark = problem.beginMoves();
+		problem.uncoverSet(1);
+		problem.coverSet(4);
+		int innerMark = problem.markMoves();
+		problem.uncoverSetIncomplete(0);
+		problem.coverSet(3);
+		problem.redundancyElimination();
+
+		problem.undoMoves(innerMark);
+		assertState(new int[] { 0, 2, 4 }, new int[] { 1, 2, 2, 0 }, 10);
+		problem.undoMoves(mark);
+		assertState(new int[] { 0, 1, 2 }, counts, 6);
+		assertTrue(problem.getUncoveredElements().isEmpty());
+		problem.endMoves();
+
+		// Moves done once the journal is discarded are kept
+		problem.uncoverSet(2);
+		problem.undoMoves(problem.beginMoves());
+		problem.endMoves();
+		assertState(new int[] { 0, 1 }, new int[] { 1, 1, 0, 1 }, 4);
+	}
+
+	public void testCopyIsIndependent() {
+		problem.coverSet(0);
+		SetCoveringProblem copy = new SetCoveringProblem(problem);
+		copy.coverSet(1);
+		assertState(new int[] { 0 }, new int[] { 0, 1, 0, 0 }, 3);
+		assertEquals(4, copy.getCost());
+	}
+}